@@ -8,10 +8,13 @@ import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 import java.util.function.Consumer;
 
 import org.requirementsascode.exception.InfiniteRepetition;
 import org.requirementsascode.exception.MoreThanOneStepCanReact;
+import org.requirementsascode.queue.ExecutorEventQueue;
 
 /**
  * An actor can be anything with a behavior.
@@ -24,6 +27,9 @@ import org.requirementsascode.exception.MoreThanOneStepCanReact;
  * Actors enable to distinguish user rights: 
  * only an actor that is connected to a particular step is allowed to 
  * cause a system reaction for that step. 
+ * 
+ * Messages can be sent to an actor synchronously, with reactTo(...),
+ * or asynchronously, with tellAsync(...) and askAsync(...).
  *
  * @author b_muth
  */
@@ -31,6 +37,8 @@ public abstract class AbstractActor {
 	private String name;
 	private ModelRunner modelRunner;
 	private Map<UseCase, List<Step>> useCaseToStepMap;
+	private volatile ExecutorEventQueue mailbox;
+	private volatile Consumer<? super Exception> asyncExceptionHandler;
 
 	
 	/**
@@ -109,7 +117,7 @@ public abstract class AbstractActor {
 	public List<Step> getStepsOf(UseCase useCase) {
 		Objects.requireNonNull(useCase);
 	
-		List<Step> steps = getModifiableStepsOf(useCase);
+		List<Step> steps = useCaseToStepMap.getOrDefault(useCase, Collections.emptyList());
 		return Collections.unmodifiableList(steps);
 	}
 
@@ -193,6 +201,162 @@ public abstract class AbstractActor {
     return latestPublishedEvent;
   }
 
+  /**
+   * Puts the specified message in the actor's mailbox, and returns immediately.
+   * The actor then reacts to it like to {@link #reactTo(Object)}, on a thread of
+   * its mailbox executor (see {@link #mailboxExecutor()}).
+   * 
+   * <p>
+   * The actor reacts to the messages in its mailbox one at a time, in the order
+   * they have been put. So its model runner is never used by two threads at the
+   * same time, as long as you don't call reactTo(...) concurrently with
+   * asynchronous messages. The actor's system reactions may send asynchronous
+   * messages to the actor itself: they are put at the end of the mailbox.
+   * 
+   * <p>
+   * An exception thrown while reacting to the message is passed to the async
+   * exception handler, see {@link #handleAsyncExceptionsWith(Consumer)}. Use
+   * {@link #askAsync(Object)} to receive it in a future instead.
+   * 
+   * @param <T>     the type of message
+   * @param message the message object
+   */
+  public <T> void tellAsync(T message) {
+    Objects.requireNonNull(message);
+    mailbox().put(new Envelope<>(message, null, null));
+  }
+
+  /**
+   * Same as {@link #tellAsync(Object)}, but with the specified actor as the calling user's role.
+   * 
+   * @param message      the message object
+   * @param callingActor the actor as which to call this actor.
+   */
+  public void tellAsync(Object message, AbstractActor callingActor) {
+    Objects.requireNonNull(message);
+    Objects.requireNonNull(callingActor);
+    mailbox().put(new Envelope<>(message, callingActor, null));
+  }
+
+  /**
+   * Puts the specified message in the actor's mailbox, like
+   * {@link #tellAsync(Object)}, and returns a future for the result.
+   * 
+   * <p>
+   * When the actor has reacted to the message, the future is completed with the
+   * latest published event, like the one {@link #reactTo(Object)} returns.
+   * If the reaction throws an exception, the future is completed exceptionally
+   * with it, and the async exception handler isn't called.
+   * 
+   * @param <T>     the type of message
+   * @param <U>     the type of event that you as the user expects.
+   * @param message the message object
+   * @return the future for the event that was published (latest) if the system
+   *         reacted, or an empty Optional.
+   */
+  public <T, U> CompletableFuture<Optional<U>> askAsync(T message) {
+    Objects.requireNonNull(message);
+    Envelope<U> envelope = new Envelope<>(message, null, new CompletableFuture<>());
+    mailbox().put(envelope);
+    return envelope.future;
+  }
+
+  /**
+   * Same as {@link #askAsync(Object)}, but with the specified actor as the calling user's role.
+   * 
+   * @param <U>          the type of event that you as the user expects.
+   * @param message      the message object
+   * @param callingActor the actor as which to call this actor.
+   * @return the future for the event that was published (latest) if the system
+   *         reacted, or an empty Optional.
+   */
+  public <U> CompletableFuture<Optional<U>> askAsync(Object message, AbstractActor callingActor) {
+    Objects.requireNonNull(message);
+    Objects.requireNonNull(callingActor);
+    Envelope<U> envelope = new Envelope<>(message, callingActor, new CompletableFuture<>());
+    mailbox().put(envelope);
+    return envelope.future;
+  }
+
+  /**
+   * Sets the handler for exceptions thrown while the actor reacts to a message
+   * sent with tellAsync(...), on the thread of the mailbox executor. By default,
+   * the exception is passed to the uncaught exception handler of that thread.
+   * 
+   * @param asyncExceptionHandler the handler, or null for the default
+   */
+  public void handleAsyncExceptionsWith(Consumer<? super Exception> asyncExceptionHandler) {
+    this.asyncExceptionHandler = asyncExceptionHandler;
+  }
+
+  /**
+   * Override this method to run the reactions to asynchronous messages on a
+   * different executor. By default, all actors share the default executor of
+   * {@link ExecutorEventQueue#defaultExecutor()}. The method is called once, for
+   * the first asynchronous message.
+   * 
+   * <p>
+   * On JVMs without virtual threads, the default executor is the common fork
+   * join pool, which has only about as many threads as there are processors,
+   * and is shared with the rest of the application. If the actor's reactions
+   * block, e.g. on I/O or by waiting for a future, return an executor with
+   * enough threads of its own, so that they don't starve other actors.
+   * 
+   * @return the executor of the actor's mailbox
+   */
+  protected Executor mailboxExecutor() {
+    return ExecutorEventQueue.defaultExecutor();
+  }
+
+  private ExecutorEventQueue mailbox() {
+    ExecutorEventQueue existingMailbox = mailbox;
+    if (existingMailbox == null) {
+      synchronized (this) {
+        existingMailbox = mailbox;
+        if (existingMailbox == null) {
+          existingMailbox = new ExecutorEventQueue(this::reactToEnvelope, mailboxExecutor());
+          mailbox = existingMailbox;
+        }
+      }
+    }
+    return existingMailbox;
+  }
+
+  private <U> void reactToEnvelope(Object mailboxEvent) {
+    @SuppressWarnings("unchecked")
+    Envelope<U> envelope = (Envelope<U>) mailboxEvent;
+    CompletableFuture<Optional<U>> future = envelope.future;
+    try {
+      Optional<U> latestPublishedEvent = envelope.callingActor == null ? reactTo(envelope.message)
+        : reactTo(envelope.message, envelope.callingActor);
+      if (future != null) {
+        future.complete(latestPublishedEvent);
+      }
+    } catch (Exception e) {
+      if (future != null) {
+        future.completeExceptionally(e);
+      } else {
+        handleAsyncException(e);
+      }
+    } catch (Error e) {
+      // Errors aren't handled, but the asking actor mustn't wait forever
+      if (future != null) {
+        future.completeExceptionally(e);
+      }
+      throw e;
+    }
+  }
+
+  private void handleAsyncException(Exception e) {
+    Consumer<? super Exception> exceptionHandler = asyncExceptionHandler;
+    if (exceptionHandler != null) {
+      exceptionHandler.accept(e);
+    } else {
+      Thread thread = Thread.currentThread();
+      thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+    }
+  }
+
   /**
    * Override this method to provide the model for the actor's behavior.
    * 
@@ -217,6 +381,22 @@ public abstract class AbstractActor {
     steps.add(step);
   }
 
+  /**
+   * An asynchronous message in the mailbox, with the future for its result, or
+   * null if nobody asked for the result.
+   */
+  private static class Envelope<U> {
+    private final Object message;
+    private final AbstractActor callingActor;
+    private final CompletableFuture<Optional<U>> future;
+
+    private Envelope(Object message, AbstractActor callingActor, CompletableFuture<Optional<U>> future) {
+      this.message = message;
+      this.callingActor = callingActor;
+      this.future = future;
+    }
+  }
+
   @Override
   public String toString() {
 		return getName();
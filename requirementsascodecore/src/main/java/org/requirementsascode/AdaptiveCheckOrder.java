@@ -0,0 +1,229 @@
+package org.requirementsascode;
+
+import static org.requirementsascode.CompiledModel.CONDITION;
+import static org.requirementsascode.CompiledModel.FLOW_POSITION;
+import static org.requirementsascode.CompiledModel.MISSING_ACTORS;
+import static org.requirementsascode.CompiledModel.MISSING_MESSAGE_CLASS;
+import static org.requirementsascode.CompiledModel.NO_INTERRUPTING_STEP;
+import static org.requirementsascode.CompiledModel.PREDICATE;
+import static org.requirementsascode.CompiledModel.REACT_WHILE;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * The order in which runners perform the checks of each step of a compiled
+ * model, learned from statistics about the checks.
+ *
+ * <p>
+ * For a sample of the evaluations of each step, a runner counts how often
+ * each check is performed and how often it rejects the step, and measures its
+ * cost. Every {@value #REORDER_INTERVAL} evaluations of a step, its checks are
+ * sorted by average cost divided by rejection rate, so that cheap checks that
+ * often reject come first. Checks that haven't been performed yet are tried
+ * first, so that their statistics become known. After sorting, the statistics
+ * are halved, so that recent evaluations weigh more. As the cost is measured,
+ * the learned order may differ from run to run.
+ *
+ * <p>
+ * A step passes only if all of its checks pass, so the order doesn't change
+ * the result, as long as the checks don't have side effects. For that reason,
+ * the checks for missing step parts always stay first, and the checks of steps
+ * with impure conditions, or that interrupting steps with impure conditions may
+ * interrupt, are never reordered. Only the actor and different flow checks are
+ * reordered among each other. The checks that evaluate user code, i.e. custom
+ * flow positions, conditions, predicates, and the interrupting step check,
+ * which evaluates the conditions of the interrupting steps, stay last, in model
+ * order, so they are only evaluated if the other checks have passed.
+ *
+ * <p>
+ * An instance belongs to a compiled model, and is shared by all runners that
+ * adapt the check order. It is thread safe. The counts that decide when to
+ * sample and reorder are not synchronized, so concurrent runners may lose some
+ * of them, which only delays sampling and reordering a little.
+ *
+ * @author b_muth
+ */
+class AdaptiveCheckOrder {
+	static final int REORDER_INTERVAL = 4096;
+	private static final int SAMPLE_MASK = 63;
+
+	private final CompiledModel compiledModel;
+	private final AtomicReferenceArray<int[]> orders;
+	private final int[] numbersOfFixedChecks;
+	private final int[] endsOfReorderableChecks;
+	private final boolean[] isReorderable;
+	private final long[][] evaluations;
+	private final long[][] rejections;
+	private final long[][] sampledNanos;
+	private final int[] stepEvaluations;
+	private final double[] ranks;
+
+	AdaptiveCheckOrder(CompiledModel compiledModel) {
+		this.compiledModel = compiledModel;
+
+		int numberOfSteps = compiledModel.getNumberOfSteps();
+		this.orders = new AtomicReferenceArray<>(numberOfSteps);
+		this.numbersOfFixedChecks = new int[numberOfSteps];
+		this.endsOfReorderableChecks = new int[numberOfSteps];
+		this.isReorderable = new boolean[numberOfSteps];
+		this.evaluations = new long[numberOfSteps][];
+		this.rejections = new long[numberOfSteps][];
+		this.sampledNanos = new long[numberOfSteps][];
+		this.stepEvaluations = new int[numberOfSteps];
+
+		int maxNumberOfChecks = 0;
+		for (int stepId = 0; stepId < numberOfSteps; stepId++) {
+			int[] checks = compiledModel.getChecks(stepId);
+			int[] order = new int[checks.length];
+			endsOfReorderableChecks[stepId] = checks.length;
+			for (int position = checks.length - 1; position >= 0; position--) {
+				order[position] = position;
+				if (checks[position] == MISSING_MESSAGE_CLASS || checks[position] == MISSING_ACTORS) {
+					numbersOfFixedChecks[stepId] = Math.max(numbersOfFixedChecks[stepId], position + 1);
+				}
+				if (isUserDefined(checks[position])) {
+					endsOfReorderableChecks[stepId] = position;
+				}
+			}
+			orders.set(stepId, order);
+			isReorderable[stepId] = compiledModel.hasOnlyPureConditions(stepId)
+				&& compiledModel.hasOnlyPureInterruptingConditions(stepId);
+			evaluations[stepId] = new long[checks.length];
+			rejections[stepId] = new long[checks.length];
+			sampledNanos[stepId] = new long[checks.length];
+			maxNumberOfChecks = Math.max(maxNumberOfChecks, checks.length);
+		}
+		this.ranks = new double[maxNumberOfChecks];
+	}
+
+	private static boolean isUserDefined(int check) {
+		return check == FLOW_POSITION || check == CONDITION || check == NO_INTERRUPTING_STEP || check == REACT_WHILE
+			|| check == PREDICATE;
+	}
+
+	/**
+	 * Returns the order in which to perform the checks of the specified step.
+	 *
+	 * @param stepId the id of the step
+	 * @return the positions of the checks in the step's compiled checks, do not
+	 *         modify the returned array
+	 */
+	int[] getOrder(int stepId) {
+		return orders.get(stepId);
+	}
+
+	/**
+	 * Starts an evaluation of the specified step.
+	 *
+	 * @param stepId the id of the step
+	 * @return true if this evaluation is part of the sample, i.e. its checks
+	 *         need to be recorded
+	 */
+	boolean startEvaluation(int stepId) {
+		return (stepEvaluations[stepId] & SAMPLE_MASK) == 0;
+	}
+
+	/**
+	 * Records the result of a check.
+	 *
+	 * @param stepId   the id of the step
+	 * @param position the position of the check in the step's compiled checks
+	 * @param isPassed whether the check passed
+	 * @param nanos    the measured cost
+	 */
+	synchronized void recordCheck(int stepId, int position, boolean isPassed, long nanos) {
+		evaluations[stepId][position]++;
+		if (!isPassed) {
+			rejections[stepId][position]++;
+		}
+		sampledNanos[stepId][position] += nanos;
+	}
+
+	/**
+	 * Ends an evaluation of the specified step, and reorders its checks every
+	 * {@value #REORDER_INTERVAL} evaluations.
+	 *
+	 * @param stepId the id of the step
+	 */
+	void endEvaluation(int stepId) {
+		if (++stepEvaluations[stepId] % REORDER_INTERVAL == 0 && isReorderable[stepId]) {
+			reorder(stepId);
+		}
+	}
+
+	private synchronized void reorder(int stepId) {
+		// Sorted in a copy, so that runners performing the checks meanwhile see a
+		// complete order
+		int[] order = orders.get(stepId).clone();
+		int numberOfFixedChecks = numbersOfFixedChecks[stepId];
+		int endOfReorderableChecks = endsOfReorderableChecks[stepId];
+		for (int i = numberOfFixedChecks; i < endOfReorderableChecks; i++) {
+			ranks[i] = rankOf(stepId, order[i]);
+		}
+
+		// Insertion sort, stable, so that checks with equal rank keep their order
+		for (int i = numberOfFixedChecks + 1; i < endOfReorderableChecks; i++) {
+			int position = order[i];
+			double rank = ranks[i];
+			int j = i - 1;
+			while (j >= numberOfFixedChecks && ranks[j] > rank) {
+				order[j + 1] = order[j];
+				ranks[j + 1] = ranks[j];
+				j--;
+			}
+			order[j + 1] = position;
+			ranks[j + 1] = rank;
+		}
+		orders.set(stepId, order);
+
+		for (int position = 0; position < order.length; position++) {
+			evaluations[stepId][position] /= 2;
+			rejections[stepId][position] /= 2;
+			sampledNanos[stepId][position] /= 2;
+		}
+	}
+
+	private double rankOf(int stepId, int position) {
+		long checkEvaluations = evaluations[stepId][position];
+		if (checkEvaluations == 0) {
+			return 0;
+		}
+		long checkRejections = rejections[stepId][position];
+		if (checkRejections == 0) {
+			return Double.POSITIVE_INFINITY;
+		}
+		double averageNanos = (double) sampledNanos[stepId][position] / checkEvaluations;
+		double rejectionRate = (double) checkRejections / checkEvaluations;
+		return averageNanos / rejectionRate;
+	}
+
+	/**
+	 * Returns a report of the learned order, with one line for each step that has
+	 * been evaluated. Each line contains the step name, followed by the checks in
+	 * the order they are performed, with their statistics.
+	 *
+	 * @return the report
+	 */
+	synchronized String report() {
+		StringBuilder report = new StringBuilder();
+		for (int stepId = 0; stepId < orders.length(); stepId++) {
+			if (stepEvaluations[stepId] == 0) {
+				continue;
+			}
+			report.append(compiledModel.getStep(stepId).getName()).append(':');
+			int[] checks = compiledModel.getChecks(stepId);
+			for (int position : orders.get(stepId)) {
+				report.append(' ').append(CompiledModel.getCheckName(checks[position]));
+				long checkEvaluations = evaluations[stepId][position];
+				if (checkEvaluations > 0) {
+					long averageNanos = sampledNanos[stepId][position] / checkEvaluations;
+					long rejectionPercentage = 100 * rejections[stepId][position] / checkEvaluations;
+					report.append(" (rejects ").append(rejectionPercentage).append("%, ").append(averageNanos)
+						.append(" ns)");
+				}
+			}
+			report.append(System.lineSeparator());
+		}
+		return report.toString();
+	}
+}
@@ -0,0 +1,706 @@
+package org.requirementsascode;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+
+import org.requirementsascode.flowposition.FlowPosition;
+
+/**
+ * The compiled form of a {@link Model}, that model runners execute.
+ *
+ * <p>
+ * In a compiled model, each step has an integer id, in model order. For each
+ * message class and each possible latest step, a transition table contains the
+ * ids of the steps that might react. For each step, an explicit list of checks
+ * replaces the step's composed predicate. A runner only needs to perform these
+ * checks for the steps found in the transition table.
+ *
+ * <p>
+ * For each transition table entry, a static analysis tells whether at most one
+ * of the steps can react. If so, a runner stops at the first step that can
+ * react, instead of checking the rest for ambiguity. See
+ * {@link #getPotentialAmbiguities()} for the steps the analysis can't tell
+ * apart.
+ *
+ * <p>
+ * The transition tables of the message classes the steps react to are computed
+ * when the model is compiled. Message classes with the same candidate steps
+ * share a table, so a message class the model doesn't know, e.g. a class
+ * without candidate steps, gets one of the existing tables on first sight.
+ * Only a limited number of such classes is remembered, so a shared compiled
+ * model doesn't grow with the number of classes it sees. The statistics for adaptive check ordering are created when a
+ * runner that adapts the check order first needs them. Apart from that, a
+ * compiled model is immutable, and can be shared by all runners of the model.
+ * Use {@link Model#compile()} to get it.
+ *
+ * @author b_muth
+ */
+public class CompiledModel {
+	/**
+	 * The id that represents "no step has been run".
+	 */
+	public static final int NO_STEP = -1;
+	static final int MAX_OTHER_MESSAGE_CLASSES = 1024;
+	static final int OTHER_STEP = -2;
+
+	static final int MISSING_MESSAGE_CLASS = 0;
+	static final int MISSING_ACTORS = 1;
+	static final int RIGHT_ACTOR = 2;
+	static final int DIFFERENT_FLOW = 3;
+	static final int FLOW_POSITION = 4;
+	static final int CONDITION = 5;
+	static final int NO_INTERRUPTING_STEP = 6;
+	static final int REACT_WHILE = 7;
+	static final int PREDICATE = 8;
+
+	private final Model model;
+	private final Step[] steps;
+	private final Map<Step, Integer> stepToIdMap;
+	private final int[] flowIds;
+	private final int[][] latestStepIds;
+	private final boolean[] isInterruptingStep;
+	private final int[][] checks;
+	private final Condition[] conditions;
+	private final int[] conditionIds;
+	private final int[] reactWhileIds;
+	private final int numberOfConditions;
+	private final List<Predicate<ModelRunner>> predicates;
+	private final Map<AbstractActor, Integer> actorToIdMap;
+	private final long[] actorMasks;
+	private final int[][] anyMessageTransitions;
+	private final Map<Class<?>, Transitions> messageClassToTransitionsMap;
+	private final Map<Class<?>, int[][]> messageClassToInterruptingTransitionsMap;
+	private final Map<BitSet, Transitions> candidatesToTransitionsMap;
+	private final Map<BitSet, int[][]> candidatesToInterruptingTransitionsMap;
+	private final int maxCachedMessageClasses;
+	private volatile AdaptiveCheckOrder adaptiveCheckOrder;
+
+	CompiledModel(Model model, Step[] steps, Map<Step, Integer> stepToIdMap, int[] flowIds, int[][] latestStepIds,
+		boolean[] isInterruptingStep, int[][] checks, Map<AbstractActor, Integer> actorToIdMap, long[] actorMasks) {
+		this.model = model;
+		this.steps = steps;
+		this.stepToIdMap = stepToIdMap;
+		this.flowIds = flowIds;
+		this.latestStepIds = latestStepIds;
+		this.isInterruptingStep = isInterruptingStep;
+		this.checks = checks;
+		this.conditions = conditionsOf(steps);
+		Map<Condition, Integer> conditionToIdMap = new IdentityHashMap<>();
+		this.conditionIds = conditionIdsOf(conditions, conditionToIdMap);
+		this.reactWhileIds = conditionIdsOf(reactWhilesOf(steps), conditionToIdMap);
+		this.numberOfConditions = conditionToIdMap.size();
+		this.predicates = predicatesOf(steps, checks);
+		this.actorToIdMap = actorToIdMap;
+		this.actorMasks = actorMasks;
+		this.messageClassToTransitionsMap = new ConcurrentHashMap<>();
+		this.messageClassToInterruptingTransitionsMap = new ConcurrentHashMap<>();
+		this.candidatesToTransitionsMap = new ConcurrentHashMap<>();
+		this.candidatesToInterruptingTransitionsMap = new ConcurrentHashMap<>();
+		this.anyMessageTransitions = transitionsFor(candidateStepIdsOf(null, false));
+
+		Set<Class<?>> messageClasses = messageClassesOf(steps);
+		this.maxCachedMessageClasses = messageClasses.size() + MAX_OTHER_MESSAGE_CLASSES;
+		for (Class<?> messageClass : messageClasses) {
+			getTransitions(messageClass);
+			getInterruptingTransitions(messageClass);
+		}
+	}
+
+	/**
+	 * Returns the model this compiled model has been created from.
+	 *
+	 * @return the model
+	 */
+	public Model getModel() {
+		return model;
+	}
+
+	/**
+	 * Returns the number of steps, i.e. the step ids range from 0 to this number
+	 * minus 1.
+	 *
+	 * @return the number of steps
+	 */
+	public int getNumberOfSteps() {
+		return steps.length;
+	}
+
+	/**
+	 * Returns the id of the specified step.
+	 *
+	 * @param step the step, or null for "no step has been run"
+	 * @return the id, or {@link #NO_STEP} if the specified step is null
+	 * @throws IllegalArgumentException if the step is not part of the model
+	 */
+	public int getStepId(Step step) {
+		int stepId = toStepId(step);
+		if (stepId == OTHER_STEP) {
+			throw new IllegalArgumentException("Step is not part of the model: " + step);
+		}
+		return stepId;
+	}
+
+	/**
+	 * Returns the step with the specified id.
+	 *
+	 * @param stepId the id of the step, or {@link #NO_STEP}
+	 * @return the step, or null if the id is {@link #NO_STEP}
+	 */
+	public Step getStep(int stepId) {
+		return stepId == NO_STEP ? null : steps[stepId];
+	}
+
+	int toStepId(Step step) {
+		if (step == null) {
+			return NO_STEP;
+		}
+		Integer stepId = stepToIdMap.get(step);
+		return stepId != null ? stepId : OTHER_STEP;
+	}
+
+	/**
+	 * Returns the ids of the steps that might react to a message of the specified
+	 * class, after the specified latest step.
+	 *
+	 * @param messageClass the class of the message
+	 * @param latestStepId the id of the latest step run
+	 * @return the step ids in model order, do not modify the returned array
+	 */
+	int[] getCandidateStepIds(Class<?> messageClass, int latestStepId) {
+		return getCandidateStepIds(getTransitions(messageClass), latestStepId);
+	}
+
+	/**
+	 * Returns the ids of the steps that might react after the specified latest
+	 * step, according to the specified transitions.
+	 *
+	 * @param transitions  the transitions of a message class
+	 * @param latestStepId the id of the latest step run
+	 * @return the step ids in model order, do not modify the returned array
+	 */
+	int[] getCandidateStepIds(Transitions transitions, int latestStepId) {
+		return transitions.getStepIds(column(latestStepId));
+	}
+
+	/**
+	 * Returns whether the analysis of the model has proven that at most one of
+	 * the candidate steps can react after the specified latest step. In that case,
+	 * a runner can stop at the first step that can react.
+	 *
+	 * @param transitions  the transitions of a message class
+	 * @param latestStepId the id of the latest step run
+	 * @return true if at most one step can react, false if more than one might
+	 */
+	boolean isUnambiguous(Transitions transitions, int latestStepId) {
+		return transitions.isUnambiguous(column(latestStepId));
+	}
+
+	/**
+	 * Returns the transitions for the specified message class.
+	 *
+	 * @param messageClass the class of the message
+	 * @return the transitions
+	 */
+	Transitions getTransitions(Class<?> messageClass) {
+		Transitions transitions = messageClassToTransitionsMap.get(messageClass);
+		if (transitions == null) {
+			BitSet candidateStepIds = candidateStepIdsOf(messageClass, false);
+			transitions = candidatesToTransitionsMap.computeIfAbsent(candidateStepIds,
+				candidates -> analyze(transitionsFor(candidates)));
+			if (messageClassToTransitionsMap.size() < maxCachedMessageClasses) {
+				messageClassToTransitionsMap.put(messageClass, transitions);
+			}
+		}
+		return transitions;
+	}
+
+	/**
+	 * Returns the number of message classes whose transitions are remembered.
+	 *
+	 * @return the number of message classes
+	 */
+	int getNumberOfCachedMessageClasses() {
+		return messageClassToTransitionsMap.size();
+	}
+
+	/**
+	 * Returns the pairs of steps that might both react to a message of the same
+	 * class, after the same latest step, judging from their message classes,
+	 * actors and flow positions. For the analysis, the message classes are the
+	 * ones the steps react to.
+	 * 
+	 * <p>
+	 * Two steps are known not to be ambiguous if one is interrupted by the other,
+	 * or if both have only actors other than the user and system actor, and no
+	 * actor in common. Conditions aren't analyzed, so the result contains steps
+	 * with mutually exclusive conditions as well.
+	 *
+	 * @return the potential ambiguities, in model order
+	 */
+	public List<PotentialAmbiguity> getPotentialAmbiguities() {
+		Set<Class<?>> messageClasses = messageClassesOf(steps);
+
+		List<PotentialAmbiguity> potentialAmbiguities = new ArrayList<>();
+		for (Class<?> messageClass : messageClasses) {
+			Transitions transitions = getTransitions(messageClass);
+			Set<Long> stepIdPairs = new LinkedHashSet<>();
+			for (int column = 0; column < transitions.getNumberOfColumns(); column++) {
+				if (!transitions.isUnambiguous(column)) {
+					addAmbiguousStepIdPairs(transitions.getStepIds(column), stepIdPairs);
+				}
+			}
+			for (long stepIdPair : stepIdPairs) {
+				Step firstStep = steps[(int) (stepIdPair >>> Integer.SIZE)];
+				Step secondStep = steps[(int) stepIdPair];
+				potentialAmbiguities.add(new PotentialAmbiguity(messageClass, firstStep, secondStep));
+			}
+		}
+		return potentialAmbiguities;
+	}
+
+	/**
+	 * Returns the ids of the interrupting steps that might react to a message of
+	 * the specified class, after the specified latest step.
+	 *
+	 * @param messageClass the class of the message
+	 * @param latestStepId the id of the latest step run
+	 * @return the step ids in model order, do not modify the returned array
+	 */
+	int[] getInterruptingStepIds(Class<?> messageClass, int latestStepId) {
+		int[][] transitions = getInterruptingTransitions(messageClass);
+		return transitions[column(latestStepId)];
+	}
+
+	private int[][] getInterruptingTransitions(Class<?> messageClass) {
+		int[][] transitions = messageClassToInterruptingTransitionsMap.get(messageClass);
+		if (transitions == null) {
+			BitSet candidateStepIds = candidateStepIdsOf(messageClass, true);
+			transitions = candidatesToInterruptingTransitionsMap.computeIfAbsent(candidateStepIds, this::transitionsFor);
+			if (messageClassToInterruptingTransitionsMap.size() < maxCachedMessageClasses) {
+				messageClassToInterruptingTransitionsMap.put(messageClass, transitions);
+			}
+		}
+		return transitions;
+	}
+
+	/**
+	 * Returns the ids of the steps that might react to a message of any class,
+	 * after the specified latest step.
+	 *
+	 * @param latestStepId the id of the latest step run
+	 * @return the step ids in model order, do not modify the returned array
+	 */
+	int[] getCandidateStepIds(int latestStepId) {
+		return anyMessageTransitions[column(latestStepId)];
+	}
+
+	int[] getChecks(int stepId) {
+		return checks[stepId];
+	}
+
+	/**
+	 * Returns the check order learned from the statistics of all runners that
+	 * adapt the check order, see {@link ModelRunner#adaptCheckOrder()}.
+	 *
+	 * @return the adaptive check order, created on first call
+	 */
+	AdaptiveCheckOrder getAdaptiveCheckOrder() {
+		AdaptiveCheckOrder checkOrder = adaptiveCheckOrder;
+		if (checkOrder == null) {
+			synchronized (this) {
+				checkOrder = adaptiveCheckOrder;
+				if (checkOrder == null) {
+					checkOrder = new AdaptiveCheckOrder(this);
+					adaptiveCheckOrder = checkOrder;
+				}
+			}
+		}
+		return checkOrder;
+	}
+
+	Class<?> getMessageClass(int stepId) {
+		return steps[stepId].getMessageClass();
+	}
+
+	Condition getCondition(int stepId) {
+		return conditions[stepId];
+	}
+
+	/**
+	 * Returns the id of the specified step's condition. Steps that share a
+	 * condition instance share the id.
+	 *
+	 * @param stepId the id of the step
+	 * @return the condition id, or -1 if the condition isn't pure
+	 */
+	int getConditionId(int stepId) {
+		return conditionIds[stepId];
+	}
+
+	/**
+	 * Returns the id of the specified step's react while condition. Steps that
+	 * share a condition instance share the id.
+	 *
+	 * @param stepId the id of the step
+	 * @return the condition id, or -1 if the condition isn't pure
+	 */
+	int getReactWhileId(int stepId) {
+		return reactWhileIds[stepId];
+	}
+
+	/**
+	 * Returns the number of pure conditions, i.e. the condition ids range from 0
+	 * to this number minus 1.
+	 *
+	 * @return the number of conditions
+	 */
+	int getNumberOfConditions() {
+		return numberOfConditions;
+	}
+
+	/**
+	 * Returns whether the specified step's condition and react while condition
+	 * are pure, if it has them.
+	 *
+	 * @param stepId the id of the step
+	 * @return true if there are no impure conditions, false otherwise
+	 */
+	boolean hasOnlyPureConditions(int stepId) {
+		boolean isConditionPure = conditions[stepId] == null || conditionIds[stepId] >= 0;
+		boolean isReactWhilePure = getReactWhileOf(steps[stepId]) == null || reactWhileIds[stepId] >= 0;
+		return isConditionPure && isReactWhilePure;
+	}
+
+	/**
+	 * Returns whether the conditions of all interrupting steps that may interrupt
+	 * the specified step are pure, so that checking whether an interrupting step
+	 * can react has no side effects.
+	 *
+	 * @param stepId the id of the step
+	 * @return true if all conditions are pure, false otherwise
+	 */
+	boolean hasOnlyPureInterruptingConditions(int stepId) {
+		for (int interruptingStepId = 0; interruptingStepId < steps.length; interruptingStepId++) {
+			if (isInterruptedBy(stepId, interruptingStepId) && !hasOnlyPureConditions(interruptingStepId)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Returns a short, human readable name of the specified check.
+	 *
+	 * @param check the check
+	 * @return the name
+	 */
+	static String getCheckName(int check) {
+		String checkName;
+		switch (check) {
+		case MISSING_MESSAGE_CLASS:
+			checkName = "message class";
+			break;
+		case MISSING_ACTORS:
+			checkName = "actors";
+			break;
+		case RIGHT_ACTOR:
+			checkName = "actor";
+			break;
+		case DIFFERENT_FLOW:
+			checkName = "different flow";
+			break;
+		case FLOW_POSITION:
+			checkName = "flow position";
+			break;
+		case CONDITION:
+			checkName = "condition";
+			break;
+		case NO_INTERRUPTING_STEP:
+			checkName = "no interrupting step";
+			break;
+		case REACT_WHILE:
+			checkName = "react while";
+			break;
+		default:
+			checkName = "predicate";
+		}
+		return checkName;
+	}
+
+	Condition getReactWhile(int stepId) {
+		return ((FlowStep) steps[stepId]).getReactWhile();
+	}
+
+	/**
+	 * Returns whether the steps have actor masks. They don't if the model has more
+	 * than 64 actors.
+	 *
+	 * @return true if there are actor masks, false otherwise
+	 */
+	boolean hasActorMasks() {
+		return actorMasks != null;
+	}
+
+	/**
+	 * Returns the mask of the actors of the specified step, with one bit set per
+	 * actor id. Only call this if {@link #hasActorMasks()} is true.
+	 *
+	 * @param stepId the id of the step
+	 * @return the actor mask
+	 */
+	long getActorMask(int stepId) {
+		return actorMasks[stepId];
+	}
+
+	/**
+	 * Returns the mask with the bit of the specified actor set. Only call this if
+	 * {@link #hasActorMasks()} is true.
+	 *
+	 * @param actor the actor
+	 * @return the mask, or 0 if the actor isn't part of the model
+	 */
+	long getActorMask(AbstractActor actor) {
+		Integer actorId = actor == null ? null : actorToIdMap.get(actor);
+		return actorId == null ? 0 : 1L << actorId;
+	}
+
+	Predicate<ModelRunner> getPredicate(int stepId) {
+		return predicates.get(stepId);
+	}
+
+	FlowPosition getFlowPosition(int stepId) {
+		return ((FlowStep) steps[stepId]).getFlowPosition();
+	}
+
+	boolean isInDifferentFlow(int stepId, int latestStepId) {
+		return latestStepId < 0 || flowIds[latestStepId] != flowIds[stepId];
+	}
+
+	private static Condition[] conditionsOf(Step[] steps) {
+		Condition[] conditions = new Condition[steps.length];
+		for (int stepId = 0; stepId < steps.length; stepId++) {
+			conditions[stepId] = steps[stepId].getCondition().orElse(null);
+		}
+		return conditions;
+	}
+
+	private static Condition[] reactWhilesOf(Step[] steps) {
+		Condition[] reactWhiles = new Condition[steps.length];
+		for (int stepId = 0; stepId < steps.length; stepId++) {
+			reactWhiles[stepId] = getReactWhileOf(steps[stepId]);
+		}
+		return reactWhiles;
+	}
+
+	private static Condition getReactWhileOf(Step step) {
+		return step instanceof FlowStep ? ((FlowStep) step).getReactWhile() : null;
+	}
+
+	private static int[] conditionIdsOf(Condition[] conditions, Map<Condition, Integer> conditionToIdMap) {
+		int[] conditionIds = new int[conditions.length];
+		for (int stepId = 0; stepId < conditions.length; stepId++) {
+			Condition condition = conditions[stepId];
+			if (condition != null && condition.isPure()) {
+				conditionToIdMap.putIfAbsent(condition, conditionToIdMap.size());
+				conditionIds[stepId] = conditionToIdMap.get(condition);
+			} else {
+				conditionIds[stepId] = -1;
+			}
+		}
+		return conditionIds;
+	}
+
+	/**
+	 * Composes the predicates of the steps that need to be tested with their
+	 * predicate, once, instead of on every test.
+	 */
+	private static List<Predicate<ModelRunner>> predicatesOf(Step[] steps, int[][] checks) {
+		List<Predicate<ModelRunner>> predicates = new ArrayList<>(steps.length);
+		for (int stepId = 0; stepId < steps.length; stepId++) {
+			Predicate<ModelRunner> predicate = null;
+			for (int check : checks[stepId]) {
+				if (check == PREDICATE) {
+					predicate = steps[stepId].getPredicate();
+				}
+			}
+			predicates.add(predicate);
+		}
+		return predicates;
+	}
+
+	private Transitions analyze(int[][] stepIds) {
+		boolean[] isUnambiguous = new boolean[stepIds.length];
+		Map<int[], Boolean> isUnambiguousMap = new IdentityHashMap<>();
+		for (int column = 0; column < stepIds.length; column++) {
+			isUnambiguous[column] = isUnambiguousMap.computeIfAbsent(stepIds[column], this::isUnambiguous);
+		}
+		return new Transitions(stepIds, isUnambiguous);
+	}
+
+	private boolean isUnambiguous(int[] candidateStepIds) {
+		for (int i = 0; i < candidateStepIds.length; i++) {
+			for (int j = i + 1; j < candidateStepIds.length; j++) {
+				if (!isExclusive(candidateStepIds[i], candidateStepIds[j])) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	private void addAmbiguousStepIdPairs(int[] candidateStepIds, Set<Long> stepIdPairs) {
+		for (int i = 0; i < candidateStepIds.length; i++) {
+			for (int j = i + 1; j < candidateStepIds.length; j++) {
+				if (!isExclusive(candidateStepIds[i], candidateStepIds[j])) {
+					stepIdPairs.add(((long) candidateStepIds[i] << Integer.SIZE) | candidateStepIds[j]);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns whether at most one of the specified steps can react, whatever the
+	 * runner's state. Incomplete steps and steps that are tested with their
+	 * predicate are never known to be exclusive.
+	 */
+	private boolean isExclusive(int stepId, int otherStepId) {
+		if (!isAnalyzable(stepId) || !isAnalyzable(otherStepId)) {
+			return false;
+		}
+		boolean isExclusive = isInterruptedBy(stepId, otherStepId) || isInterruptedBy(otherStepId, stepId)
+			|| haveExclusiveActors(stepId, otherStepId);
+		return isExclusive;
+	}
+
+	private boolean isAnalyzable(int stepId) {
+		for (int check : checks[stepId]) {
+			if (check == MISSING_MESSAGE_CLASS || check == MISSING_ACTORS || check == PREDICATE) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * An interruptable step can't react if an interrupting step for its message
+	 * class can react. The checks of the interrupting step don't depend on the
+	 * message, so whenever it can react, the interruptable step can't.
+	 */
+	private boolean isInterruptedBy(int stepId, int interruptingStepId) {
+		if (!isInterruptingStep[interruptingStepId] || !hasCheck(stepId, NO_INTERRUPTING_STEP)) {
+			return false;
+		}
+		boolean isInterrupted = ModelRunner.isSameOrSuperclass(steps[interruptingStepId].getMessageClass(),
+			steps[stepId].getMessageClass());
+		return isInterrupted;
+	}
+
+	/**
+	 * A runner runs as a single actor, besides the user and system actor. So if
+	 * neither step has the user or system actor, and they have no actor in common,
+	 * at most one of them can react.
+	 */
+	private boolean haveExclusiveActors(int stepId, int otherStepId) {
+		if (!hasActorMasks()) {
+			return false;
+		}
+		long userAndSystemActorMask = getActorMask(model.getUserActor()) | getActorMask(model.getSystemActor());
+		long actorMask = actorMasks[stepId];
+		long otherActorMask = actorMasks[otherStepId];
+		boolean haveExclusiveActors = (actorMask & userAndSystemActorMask) == 0
+			&& (otherActorMask & userAndSystemActorMask) == 0 && (actorMask & otherActorMask) == 0;
+		return haveExclusiveActors;
+	}
+
+	private boolean hasCheck(int stepId, int check) {
+		for (int stepCheck : checks[stepId]) {
+			if (stepCheck == check) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static int column(int latestStepId) {
+		return latestStepId - OTHER_STEP;
+	}
+
+	private static Set<Class<?>> messageClassesOf(Step[] steps) {
+		Set<Class<?>> messageClasses = new LinkedHashSet<>();
+		for (Step step : steps) {
+			if (step.getMessageClass() != null) {
+				messageClasses.add(step.getMessageClass());
+			}
+		}
+		return messageClasses;
+	}
+
+	private BitSet candidateStepIdsOf(Class<?> messageClass, boolean onlyInterruptingSteps) {
+		BitSet candidateStepIds = new BitSet(steps.length);
+		for (int stepId = 0; stepId < steps.length; stepId++) {
+			if (isCandidate(stepId, messageClass, onlyInterruptingSteps)) {
+				candidateStepIds.set(stepId);
+			}
+		}
+		return candidateStepIds;
+	}
+
+	private int[][] transitionsFor(BitSet candidates) {
+		List<Integer> candidateStepIds = new ArrayList<>();
+		Set<Integer> keyLatestStepIds = new LinkedHashSet<>();
+		for (int stepId = candidates.nextSetBit(0); stepId >= 0; stepId = candidates.nextSetBit(stepId + 1)) {
+			candidateStepIds.add(stepId);
+			if (latestStepIds[stepId] != null) {
+				for (int latestStepId : latestStepIds[stepId]) {
+					keyLatestStepIds.add(latestStepId);
+				}
+			}
+		}
+
+		int[][] transitions = new int[column(steps.length)][];
+		int[] stepIdsAfterAnyStep = stepIdsAfter(OTHER_STEP, candidateStepIds);
+		for (int i = 0; i < transitions.length; i++) {
+			transitions[i] = stepIdsAfterAnyStep;
+		}
+		for (int latestStepId : keyLatestStepIds) {
+			transitions[column(latestStepId)] = stepIdsAfter(latestStepId, candidateStepIds);
+		}
+		return transitions;
+	}
+
+	private boolean isCandidate(int stepId, Class<?> messageClass, boolean onlyInterruptingSteps) {
+		if (onlyInterruptingSteps && !isInterruptingStep[stepId]) {
+			return false;
+		}
+		Class<?> stepMessageClass = steps[stepId].getMessageClass();
+		boolean isCandidate = messageClass == null || stepMessageClass == null
+			|| ModelRunner.isSameOrSuperclass(stepMessageClass, messageClass);
+		return isCandidate;
+	}
+
+	private int[] stepIdsAfter(int latestStepId, List<Integer> candidateStepIds) {
+		return candidateStepIds.stream()
+			.filter(stepId -> isAfter(latestStepId, latestStepIds[stepId]))
+			.mapToInt(Integer::intValue)
+			.toArray();
+	}
+
+	private static boolean isAfter(int latestStepId, int[] keyLatestStepIds) {
+		if (keyLatestStepIds == null) {
+			return true;
+		}
+		for (int keyLatestStepId : keyLatestStepIds) {
+			if (keyLatestStepId == latestStepId) {
+				return true;
+			}
+		}
+		return false;
+	}
+}
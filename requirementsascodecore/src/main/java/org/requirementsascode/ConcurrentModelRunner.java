@@ -0,0 +1,174 @@
+package org.requirementsascode;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * A thread safe facade for model runners that share a model. Each message is
+ * routed by a key, e.g. a session or aggregate id, to a model runner of its own.
+ * Messages with the same key are handled one after the other, messages with
+ * different keys can be handled in parallel.
+ *
+ * <p>
+ * The keys are spread over a fixed number of stripes. Each stripe has a lock,
+ * and the model runners for its keys. The thread that calls
+ * {@link #reactTo(Object)} holds the lock of the message's stripe while the
+ * model runner reacts. So keys in the same stripe wait for each other, but
+ * there is no global lock.
+ *
+ * <p>
+ * A system reaction must not call {@link #reactTo(Object)} of the same facade
+ * for a message with a different key, because two threads doing that may wait
+ * for each other's stripe forever. Use a queue for that instead.
+ *
+ * @author b_muth
+ */
+public class ConcurrentModelRunner {
+	private final Model model;
+	private final Function<Object, ?> keyExtractor;
+	private final Supplier<ModelRunner> modelRunnerSupplier;
+	private final Stripe[] stripes;
+
+	/**
+	 * Creates a concurrent model runner, with a new {@link ModelRunner} per key,
+	 * and a number of stripes suitable for the available processors.
+	 *
+	 * @param model        the model that defines the behavior for every key
+	 * @param keyExtractor the function that returns the key of a message, not null
+	 */
+	public ConcurrentModelRunner(Model model, Function<Object, ?> keyExtractor) {
+		this(model, keyExtractor, ModelRunner::new, defaultNumberOfStripes());
+	}
+
+	/**
+	 * Creates a concurrent model runner.
+	 *
+	 * @param model               the model that defines the behavior for every key
+	 * @param keyExtractor        the function that returns the key of a message,
+	 *                            not null
+	 * @param modelRunnerSupplier supplies a new, configured model runner when a
+	 *                            message with an unknown key arrives. The model
+	 *                            runner will then be run with the model.
+	 * @param numberOfStripes     the number of stripes, at least 1
+	 * @throws IllegalArgumentException if the number of stripes is less than 1
+	 */
+	public ConcurrentModelRunner(Model model, Function<Object, ?> keyExtractor,
+		Supplier<ModelRunner> modelRunnerSupplier, int numberOfStripes) {
+		if (numberOfStripes < 1) {
+			throw new IllegalArgumentException("Number of stripes must be at least 1, but was " + numberOfStripes);
+		}
+		this.model = Objects.requireNonNull(model);
+		this.keyExtractor = Objects.requireNonNull(keyExtractor);
+		this.modelRunnerSupplier = Objects.requireNonNull(modelRunnerSupplier);
+		this.stripes = new Stripe[numberOfStripes];
+		for (int i = 0; i < numberOfStripes; i++) {
+			stripes[i] = new Stripe();
+		}
+
+		// Compile eagerly, so that threads don't need to do it concurrently
+		model.compile();
+	}
+
+	private static int defaultNumberOfStripes() {
+		return 4 * Runtime.getRuntime().availableProcessors();
+	}
+
+	/**
+	 * Routes the specified message to the model runner for its key, and lets it
+	 * react, in the calling thread. If there is no model runner for the key yet,
+	 * it is created and run first.
+	 *
+	 * @param <T>     the type of message
+	 * @param <U>     the return type that you as the user expects.
+	 * @param message the message object
+	 * @return the event that was published (latest) if the system reacted, or an
+	 *         empty Optional.
+	 * @see ModelRunner#reactTo(Object)
+	 */
+	public <T, U> Optional<U> reactTo(T message) {
+		Objects.requireNonNull(message);
+		Object key = keyOf(message);
+
+		Stripe stripe = stripeOf(key);
+		synchronized (stripe) {
+			ModelRunner modelRunner = stripe.modelRunnerFor(key);
+			Optional<U> latestPublishedEvent = modelRunner.reactTo(message);
+			return latestPublishedEvent;
+		}
+	}
+
+	/**
+	 * Returns the latest step that has been run for the specified key.
+	 *
+	 * @param key the key
+	 * @return the latest step run, or an empty optional if there is no model
+	 *         runner for the key, or it hasn't run a step yet
+	 */
+	public Optional<Step> getLatestStep(Object key) {
+		Objects.requireNonNull(key);
+
+		Stripe stripe = stripeOf(key);
+		synchronized (stripe) {
+			ModelRunner modelRunner = stripe.modelRunners.get(key);
+			return modelRunner == null ? Optional.empty() : modelRunner.getLatestStep();
+		}
+	}
+
+	/**
+	 * Discards the model runner for the specified key. A later message with the
+	 * key starts from the beginning, with a new model runner.
+	 *
+	 * @param key the key
+	 * @return true if there was a model runner for the key, false otherwise
+	 */
+	public boolean remove(Object key) {
+		Objects.requireNonNull(key);
+
+		Stripe stripe = stripeOf(key);
+		synchronized (stripe) {
+			return stripe.modelRunners.remove(key) != null;
+		}
+	}
+
+	/**
+	 * Returns the model shared by the model runners.
+	 *
+	 * @return the model
+	 */
+	public Model getModel() {
+		return model;
+	}
+
+	private Object keyOf(Object message) {
+		Object key = keyExtractor.apply(message);
+		if (key == null) {
+			throw new NullPointerException("Key extractor returned null for message: " + message);
+		}
+		return key;
+	}
+
+	private Stripe stripeOf(Object key) {
+		int hash = key.hashCode();
+		hash ^= (hash >>> 16);
+		return stripes[Math.floorMod(hash, stripes.length)];
+	}
+
+	private class Stripe {
+		private final Map<Object, ModelRunner> modelRunners = new HashMap<>();
+
+		private ModelRunner modelRunnerFor(Object key) {
+			ModelRunner modelRunner = modelRunners.get(key);
+			if (modelRunner == null) {
+				modelRunner = Objects.requireNonNull(modelRunnerSupplier.get());
+				modelRunner.run(model);
+				// Stored only after running succeeded, so that a failed start is retried
+				modelRunners.put(key, modelRunner);
+			}
+			return modelRunner;
+		}
+	}
+}
@@ -1,14 +1,45 @@
 package org.requirementsascode;
 
+import java.util.Objects;
+
 /**
  * A condition, as part of a model. A condition is used to evaluate when a model
  * runner triggers a system reaction, given that a message of a type defined in
  * the model is received.
  * 
+ * <p>
+ * While a runner checks which step can react to a message, it evaluates each
+ * condition at most once, and reuses the result, even if several steps share
+ * the condition. Use {@link #impure(Condition)} for conditions that may change
+ * their result in the meantime, so that the runner evaluates them every time.
+ * 
  * @author b_muth
  *
  */
 @FunctionalInterface
 public interface Condition {
 	boolean evaluate();
+
+	/**
+	 * Returns whether the result of this condition only changes when a system
+	 * reaction is run. If it is, the runner may reuse its result while it checks
+	 * the steps for a single message.
+	 * 
+	 * @return true by default
+	 */
+	default boolean isPure() {
+		return true;
+	}
+
+	/**
+	 * Wraps the specified condition, so that the runner evaluates it each time it
+	 * checks a step.
+	 * 
+	 * @param condition the condition to wrap
+	 * @return a condition that isn't pure
+	 */
+	static Condition impure(Condition condition) {
+		Objects.requireNonNull(condition);
+		return new ImpureCondition(condition);
+	}
 }
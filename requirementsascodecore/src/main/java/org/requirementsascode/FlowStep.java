@@ -37,21 +37,26 @@ public abstract class FlowStep extends Step{
 
 	void setFlowPosition(FlowPosition flowPosition) {
 		Objects.requireNonNull(flowPosition);
+		getModel().checkNotFrozen();
 
 		this.flowPosition = flowPosition;
+		getModel().clearStepCaches();
 	}
 
 	public void orAfter(FlowStep step) {
+		getModel().checkNotFrozen();
 		setFlowPosition(flowPosition.orAfter(step));
 	}
 
 	public void setReactWhile(Condition reactWhileCondition) {
+		getModel().checkNotFrozen();
 		this.reactWhile = reactWhileCondition;
 		createLoop();
 	}
 
 	private void createLoop() {
 		getFlowPosition().orAfter(this);
+		getModel().clearStepCaches();
 	}
 
 	public Condition getReactWhile() {
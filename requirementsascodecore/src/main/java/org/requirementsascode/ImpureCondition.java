@@ -0,0 +1,25 @@
+package org.requirementsascode;
+
+/**
+ * A condition whose result the runner doesn't reuse.
+ * 
+ * @see Condition#impure(Condition)
+ * @author b_muth
+ */
+class ImpureCondition implements Condition {
+	private final Condition condition;
+
+	ImpureCondition(Condition condition) {
+		this.condition = condition;
+	}
+
+	@Override
+	public boolean evaluate() {
+		return condition.evaluate();
+	}
+
+	@Override
+	public boolean isPure() {
+		return false;
+	}
+}
@@ -1,6 +1,5 @@
 package org.requirementsascode;
 
-import java.util.Collection;
 import java.util.List;
 import java.util.function.Predicate;
 
@@ -56,22 +55,11 @@ public class InterruptableFlowStep extends FlowStep{
 
 			boolean noStepInterrupts = true;
 			if (modelRunner.isRunning()) {
-				Collection<Step> steps = getFlow().getModel().getModifiableSteps();
-				
-				for (Step step : steps) {
-					if(isInterruptingStep(step) && modelRunner.canReactToMessageClass(step, messageClass)) {
-						noStepInterrupts = false;
-						break;
-					}
-				}
+				noStepInterrupts = !modelRunner.canInterruptingStepReactTo(messageClass);
 			}
 
 			return noStepInterrupts;
 		};
 
 	}
-
-	private boolean isInterruptingStep(Step step) {
-		return InterruptingFlowStep.class.equals(step.getClass());
-	}
 }
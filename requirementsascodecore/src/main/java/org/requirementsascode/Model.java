@@ -10,12 +10,14 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.stream.Collectors;
 
 import org.requirementsascode.builder.ModelBuilder;
+import org.requirementsascode.exception.ModelIsFrozen;
 import org.requirementsascode.exception.NoSuchElementInModel;
 
 /**
@@ -29,12 +31,20 @@ import org.requirementsascode.exception.NoSuchElementInModel;
  * 
  * A model is used to configure a {@link ModelRunner}.
  *
+ * <p>
+ * When the model has been built, it is frozen: it can't be changed anymore,
+ * and it is safe to share it between model runners on different threads.
+ *
  * @author b_muth
  */
 public class Model{
 	private Map<String, UseCase> nameToUseCaseMap;
 	private AbstractActor userActor;
 	private AbstractActor systemActor;
+	private volatile Step[] stepArray;
+	private volatile List<Step> stepList;
+	private volatile CompiledModel compiledModel;
+	private volatile boolean isFrozen;
 
 	private Model() {
 		this.nameToUseCaseMap = new LinkedHashMap<>();
@@ -77,6 +87,7 @@ public class Model{
 
 	public UseCase newUseCase(String useCaseName) {
 		Objects.requireNonNull(useCaseName);
+		checkNotFrozen();
 		UseCase useCase = new UseCase(useCaseName, this);
 		saveModelElement(useCase, nameToUseCaseMap);
 		return useCase;
@@ -143,19 +154,108 @@ public class Model{
 	 * @return the use steps
 	 */
 	public Collection<Step> getSteps() {
-		Collection<Step> modifiableSteps = getModifiableSteps();
-		return Collections.unmodifiableCollection(modifiableSteps);
+		return getModifiableSteps();
 	}
 
 	Collection<Step> getModifiableSteps() {
+		List<Step> steps = stepList;
+		if (steps == null) {
+			steps = Collections.unmodifiableList(Arrays.asList(getModifiableStepArray()));
+			stepList = steps;
+		}
+		return steps;
+	}
+
+	/**
+	 * Returns the steps of all use cases of this model, flattened to an array in
+	 * model order. The array is built once, and rebuilt only after the steps of
+	 * the model have changed.
+	 *
+	 * @return the steps, do not modify the returned array
+	 */
+	Step[] getModifiableStepArray() {
+		Step[] steps = stepArray;
+		if (steps == null) {
+			steps = collectSteps();
+			stepArray = steps;
+		}
+		return steps;
+	}
+
+	private Step[] collectSteps() {
 		Collection<UseCase> modifiableUseCases = getModifiableUseCases();
-		Collection<Step> modifiableSteps = new ArrayList<>();
+		List<Step> modifiableSteps = new ArrayList<>();
 		
 		for (UseCase useCase : modifiableUseCases) {
 			Collection<Step> useCaseSteps = useCase.getModifiableSteps();
 			modifiableSteps.addAll(useCaseSteps);
 		}
-		return modifiableSteps;
+		return modifiableSteps.toArray(new Step[0]);
+	}
+
+	/**
+	 * Returns the compiled form of this model, that model runners execute. The
+	 * model is compiled when it is built, and compiled again only after it has
+	 * changed.
+	 *
+	 * @return the compiled model
+	 */
+	public CompiledModel compile() {
+		CompiledModel compiled = compiledModel;
+		if (compiled == null) {
+			compiled = ModelCompiler.compile(this);
+			compiledModel = compiled;
+		}
+		return compiled;
+	}
+
+	/**
+	 * Discards the cached information about the steps of this model. Called when
+	 * a step is added, or a step's message class, actors, condition or flow
+	 * position changes.
+	 */
+	void clearStepCaches() {
+		checkNotFrozen();
+		stepArray = null;
+		stepList = null;
+		compiledModel = null;
+	}
+
+	/**
+	 * Freezes this model, after all of its flow positions and system reactions
+	 * that refer to steps by name have been resolved, and compiles it. After that,
+	 * trying to change the model throws a {@link ModelIsFrozen} exception.
+	 *
+	 * <p>
+	 * A frozen model doesn't change its state when model runners use it, so it
+	 * can be shared by any number of model runners on different threads. The
+	 * model is published safely to each thread that calls {@link #compile()} or
+	 * {@link #isFrozen()}, as {@link ModelRunner#run(Model)} does: the thread sees
+	 * the model as it was when it has been frozen.
+	 *
+	 * <p>
+	 * Freezing a model that is already frozen has no effect.
+	 */
+	public void freeze() {
+		if (!isFrozen) {
+			compile();
+			isFrozen = true;
+		}
+	}
+
+	/**
+	 * Returns whether this model has been frozen, i.e. whether it has been built.
+	 *
+	 * @return true if frozen, false otherwise
+	 */
+	public boolean isFrozen() {
+		return isFrozen;
+	}
+
+	void checkNotFrozen() {
+		if (isFrozen) {
+			throw new ModelIsFrozen();
+		}
 	}
 
 	/**
@@ -0,0 +1,235 @@
+package org.requirementsascode;
+
+import static org.requirementsascode.CompiledModel.CONDITION;
+import static org.requirementsascode.CompiledModel.DIFFERENT_FLOW;
+import static org.requirementsascode.CompiledModel.FLOW_POSITION;
+import static org.requirementsascode.CompiledModel.MISSING_ACTORS;
+import static org.requirementsascode.CompiledModel.MISSING_MESSAGE_CLASS;
+import static org.requirementsascode.CompiledModel.NO_INTERRUPTING_STEP;
+import static org.requirementsascode.CompiledModel.NO_STEP;
+import static org.requirementsascode.CompiledModel.PREDICATE;
+import static org.requirementsascode.CompiledModel.REACT_WHILE;
+import static org.requirementsascode.CompiledModel.RIGHT_ACTOR;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.requirementsascode.flowposition.After;
+import org.requirementsascode.flowposition.Anytime;
+import org.requirementsascode.flowposition.FlowPosition;
+import org.requirementsascode.flowposition.InsteadOf;
+
+/**
+ * Turns a model into a {@link CompiledModel}.
+ *
+ * <p>
+ * For each step, the compiler determines the latest steps after which the
+ * step's flow position can be reached, and the list of checks that replace the
+ * step's predicate. After and InsteadOf positions are compiled to the step
+ * they refer to, plus their merge steps. Anytime positions, flowless steps and
+ * incomplete steps are compiled to be reachable after any step. A custom flow
+ * position is reachable after any step, and tested by the runner.
+ *
+ * <p>
+ * Each actor gets an id, starting with the user and system actor. If there are
+ * no more than 64 actors, each step gets a bit mask of its actors' ids.
+ *
+ * @author b_muth
+ */
+class ModelCompiler {
+	private final Model model;
+	private final Step[] steps;
+	private final Map<Step, Integer> stepToIdMap;
+	private final Map<Flow, Integer> flowToIdMap;
+	private final Map<AbstractActor, Integer> actorToIdMap;
+
+	private ModelCompiler(Model model) {
+		this.model = model;
+		this.steps = model.getModifiableStepArray();
+		this.stepToIdMap = new IdentityHashMap<>();
+		this.flowToIdMap = new IdentityHashMap<>();
+		this.actorToIdMap = new HashMap<>();
+	}
+
+	/**
+	 * Compiles the specified model.
+	 *
+	 * @param model the model to compile
+	 * @return the compiled model
+	 */
+	static CompiledModel compile(Model model) {
+		return new ModelCompiler(model).compile();
+	}
+
+	private CompiledModel compile() {
+		int[] flowIds = new int[steps.length];
+		int[][] latestStepIds = new int[steps.length][];
+		boolean[] isInterruptingStep = new boolean[steps.length];
+		int[][] checks = new int[steps.length][];
+
+		for (int stepId = 0; stepId < steps.length; stepId++) {
+			stepToIdMap.put(steps[stepId], stepId);
+		}
+		long[] actorMasks = actorMasksOf(steps);
+
+		for (int stepId = 0; stepId < steps.length; stepId++) {
+			Step step = steps[stepId];
+			flowIds[stepId] = flowIdOf(step);
+			latestStepIds[stepId] = latestStepIdsOf(step);
+			isInterruptingStep[stepId] = InterruptingFlowStep.class.equals(step.getClass());
+			checks[stepId] = checksOf(step);
+		}
+
+		return new CompiledModel(model, steps, stepToIdMap, flowIds, latestStepIds, isInterruptingStep, checks,
+			actorToIdMap, actorMasks);
+	}
+
+	/**
+	 * Assigns an id to each actor, and returns the actor masks of the steps.
+	 *
+	 * @return the masks, or null if there are more actors than bits in a mask
+	 */
+	private long[] actorMasksOf(Step[] steps) {
+		addActor(model.getUserActor());
+		addActor(model.getSystemActor());
+		for (Step step : steps) {
+			AbstractActor[] stepActors = step.getActors();
+			if (stepActors != null) {
+				for (AbstractActor stepActor : stepActors) {
+					addActor(stepActor);
+				}
+			}
+		}
+
+		if (actorToIdMap.size() > Long.SIZE) {
+			return null;
+		}
+
+		long[] actorMasks = new long[steps.length];
+		for (int stepId = 0; stepId < steps.length; stepId++) {
+			AbstractActor[] stepActors = steps[stepId].getActors();
+			if (stepActors != null) {
+				for (AbstractActor stepActor : stepActors) {
+					actorMasks[stepId] |= 1L << actorToIdMap.get(stepActor);
+				}
+			}
+		}
+		return actorMasks;
+	}
+
+	private void addActor(AbstractActor actor) {
+		actorToIdMap.putIfAbsent(actor, actorToIdMap.size());
+	}
+
+	private int flowIdOf(Step step) {
+		if (!(step instanceof FlowStep)) {
+			return NO_STEP;
+		}
+		Flow flow = ((FlowStep) step).getFlow();
+		flowToIdMap.putIfAbsent(flow, flowToIdMap.size());
+		return flowToIdMap.get(flow);
+	}
+
+	/**
+	 * Returns the ids of the latest steps after which the flow position of the
+	 * specified step can be reached. The result may contain {@link CompiledModel#NO_STEP}.
+	 *
+	 * @param step the step to examine
+	 * @return the latest step ids, or null if the position may be reached after
+	 *         any step
+	 */
+	private int[] latestStepIdsOf(Step step) {
+		if (!(step instanceof FlowStep) || isIncomplete(step)) {
+			return null;
+		}
+
+		FlowPosition flowPosition = ((FlowStep) step).getFlowPosition();
+		Class<?> flowPositionClass = flowPosition.getClass();
+		Set<Step> latestSteps = new LinkedHashSet<>();
+
+		if (After.class.equals(flowPositionClass)) {
+			flowPosition.resolveStep();
+			latestSteps.add(flowPosition.getStep());
+		} else if (InsteadOf.class.equals(flowPositionClass)) {
+			flowPosition.resolveStep();
+			FlowStep insteadOfStep = (FlowStep) flowPosition.getStep();
+			latestSteps.add(insteadOfStep.getPreviousStepInFlow().orElse(null));
+		} else {
+			return null;
+		}
+		latestSteps.addAll(flowPosition.getMergeSteps());
+
+		return latestSteps.stream()
+			.mapToInt(this::toStepId)
+			.distinct()
+			.toArray();
+	}
+
+	private int toStepId(Step step) {
+		if (step == null) {
+			return NO_STEP;
+		}
+		return stepToIdMap.get(step);
+	}
+
+	private int[] checksOf(Step step) {
+		List<Integer> checks = new ArrayList<>();
+
+		if (step.getMessageClass() == null) {
+			checks.add(MISSING_MESSAGE_CLASS);
+		}
+		checks.add(step.getActors() == null ? MISSING_ACTORS : RIGHT_ACTOR);
+
+		Class<?> stepClass = step.getClass();
+		if (FlowlessStep.class.equals(stepClass)) {
+			addConditionCheck(step, checks);
+		} else if (InterruptingFlowStep.class.equals(stepClass)) {
+			checks.add(DIFFERENT_FLOW);
+			addFlowPositionCheck((FlowStep) step, checks);
+			addConditionCheck(step, checks);
+			addReactWhileCheck((FlowStep) step, checks);
+		} else if (InterruptableFlowStep.class.equals(stepClass)) {
+			addFlowPositionCheck((FlowStep) step, checks);
+			checks.add(NO_INTERRUPTING_STEP);
+			addReactWhileCheck((FlowStep) step, checks);
+		} else {
+			checks.add(PREDICATE);
+		}
+
+		return checks.stream().mapToInt(Integer::intValue).toArray();
+	}
+
+	private void addConditionCheck(Step step, List<Integer> checks) {
+		if (step.getCondition().isPresent()) {
+			checks.add(CONDITION);
+		}
+	}
+
+	private void addFlowPositionCheck(FlowStep step, List<Integer> checks) {
+		if (isCustomFlowPosition(step.getFlowPosition())) {
+			checks.add(FLOW_POSITION);
+		}
+	}
+
+	private void addReactWhileCheck(FlowStep step, List<Integer> checks) {
+		if (step.getReactWhile() != null) {
+			checks.add(REACT_WHILE);
+		}
+	}
+
+	private boolean isCustomFlowPosition(FlowPosition flowPosition) {
+		Class<?> flowPositionClass = flowPosition.getClass();
+		boolean isCustom = !After.class.equals(flowPositionClass) && !InsteadOf.class.equals(flowPositionClass)
+			&& !Anytime.class.equals(flowPositionClass);
+		return isCustom;
+	}
+
+	private boolean isIncomplete(Step step) {
+		return step.getMessageClass() == null || step.getActors() == null;
+	}
+}
@@ -0,0 +1,362 @@
+package org.requirementsascode;
+
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+import org.requirementsascode.exception.InfiniteRepetition;
+import org.requirementsascode.exception.MoreThanOneStepCanReact;
+import org.requirementsascode.exception.NestedCallOfReactTo;
+
+/**
+ * An engine runs many user journeys ("sessions") of the same model. It holds
+ * the model and the handlers, while each session is just a small
+ * {@link SessionState}. So you need a single engine, and a session state per
+ * user, instead of a {@link ModelRunner} per user.
+ *
+ * <p>
+ * The engine is thread safe, as long as each session state is used by one
+ * thread at a time. Internally, each thread reuses a model runner of its own,
+ * and loads the session state into it for each message. Configure the engine
+ * before starting the first session.
+ *
+ * @author b_muth
+ */
+public class ModelEngine {
+	private final Model model;
+	private final ThreadLocal<Worker> workers;
+	private AbstractActor runActor;
+	private Consumer<StepToBeRun> messageHandler;
+	private Consumer<Object> unhandledMessageHandler;
+	private Consumer<Object> eventPublisher;
+	private Integer maxStepsPerMessage;
+	private boolean isAdaptingCheckOrder;
+	private boolean isPublishingToRecipientsAsync;
+	private boolean isStarted;
+
+	/**
+	 * Creates an engine for the specified model.
+	 *
+	 * @param model the model that defines the behavior of each session, must have
+	 *              been built
+	 * @throws IllegalArgumentException if the model hasn't been built
+	 */
+	public ModelEngine(Model model) {
+		Objects.requireNonNull(model);
+		if (!model.isFrozen()) {
+			throw new IllegalArgumentException("Model must have been built, so that it can be shared by sessions");
+		}
+		this.model = model;
+		this.workers = ThreadLocal.withInitial(Worker::new);
+		this.runActor = model.getUserActor();
+	}
+
+	/**
+	 * Runs the sessions as the specified actor, see
+	 * {@link ModelRunner#as(AbstractActor)}.
+	 *
+	 * @param runActor the actor to run as
+	 * @return this engine, for chaining
+	 */
+	public synchronized ModelEngine as(AbstractActor runActor) {
+		checkNotStarted();
+		this.runActor = Objects.requireNonNull(runActor);
+		return this;
+	}
+
+	/**
+	 * Defines a custom message handler, see
+	 * {@link ModelRunner#handleWith(Consumer)}.
+	 *
+	 * @param messageHandler the custom message handler
+	 * @return this engine, for chaining
+	 */
+	public synchronized ModelEngine handleWith(Consumer<StepToBeRun> messageHandler) {
+		checkNotStarted();
+		this.messageHandler = Objects.requireNonNull(messageHandler);
+		return this;
+	}
+
+	/**
+	 * Defines a handler for messages that no step reacts to, see
+	 * {@link ModelRunner#handleUnhandledWith(Consumer)}.
+	 *
+	 * @param unhandledMessageHandler the handler for messages not handled
+	 * @return this engine, for chaining
+	 */
+	public synchronized ModelEngine handleUnhandledWith(Consumer<Object> unhandledMessageHandler) {
+		checkNotStarted();
+		this.unhandledMessageHandler = Objects.requireNonNull(unhandledMessageHandler);
+		return this;
+	}
+
+	/**
+	 * Defines a custom publisher for events, see
+	 * {@link ModelRunner#publishWith(Consumer)}.
+	 *
+	 * @param eventPublisher the custom event publisher
+	 * @return this engine, for chaining
+	 */
+	public synchronized ModelEngine publishWith(Consumer<Object> eventPublisher) {
+		checkNotStarted();
+		this.eventPublisher = Objects.requireNonNull(eventPublisher);
+		return this;
+	}
+
+	/**
+	 * Limits the number of steps per message, see
+	 * {@link ModelRunner#limitStepsPerMessageTo(int)}.
+	 *
+	 * @param maxStepsPerMessage the maximum number of steps, at least 1
+	 * @return this engine, for chaining
+	 * @throws IllegalArgumentException if the maximum is less than 1
+	 */
+	public synchronized ModelEngine limitStepsPerMessageTo(int maxStepsPerMessage) {
+		checkNotStarted();
+		if (maxStepsPerMessage < 1) {
+			throw new IllegalArgumentException("Maximum number of steps per message must be at least 1, but was "
+				+ maxStepsPerMessage);
+		}
+		this.maxStepsPerMessage = maxStepsPerMessage;
+		return this;
+	}
+
+	/**
+	 * Switches adaptive check ordering on, see
+	 * {@link ModelRunner#adaptCheckOrder()}. It is off by default. The threads
+	 * learn the order together, as they share the compiled model.
+	 *
+	 * @return this engine, for chaining
+	 */
+	public ModelEngine adaptCheckOrder() {
+		return adaptCheckOrder(true);
+	}
+
+	/**
+	 * Switches adaptive check ordering on or off, see
+	 * {@link ModelRunner#adaptCheckOrder(boolean)}. It is off by default.
+	 *
+	 * @param isAdaptingCheckOrder true to switch adaptive ordering on, false to
+	 *                             switch it off
+	 * @return this engine, for chaining
+	 */
+	public synchronized ModelEngine adaptCheckOrder(boolean isAdaptingCheckOrder) {
+		checkNotStarted();
+		this.isAdaptingCheckOrder = isAdaptingCheckOrder;
+		return this;
+	}
+
+	/**
+	 * Switches asynchronous publishing to recipients on or off, see
+	 * {@link ModelRunner#publishToRecipientsAsync(boolean)}.
+	 *
+	 * @param isPublishingToRecipientsAsync true to switch asynchronous publishing
+	 *                                      on, false to switch it off
+	 * @return this engine, for chaining
+	 */
+	public synchronized ModelEngine publishToRecipientsAsync(boolean isPublishingToRecipientsAsync) {
+		checkNotStarted();
+		this.isPublishingToRecipientsAsync = isPublishingToRecipientsAsync;
+		return this;
+	}
+
+	private void checkNotStarted() {
+		if (isStarted) {
+			throw new IllegalStateException("Configure the engine before starting the first session");
+		}
+	}
+
+	/**
+	 * Creates the model runner of a thread, with the configuration of this
+	 * engine. Synchronized with the configuration methods, so that each thread
+	 * sees the complete configuration.
+	 */
+	private synchronized ModelRunner createModelRunner() {
+		isStarted = true;
+
+		ModelRunner modelRunner = new ModelRunner();
+		modelRunner.as(runActor);
+		modelRunner.adaptCheckOrder(isAdaptingCheckOrder);
+		modelRunner.publishToRecipientsAsync(isPublishingToRecipientsAsync);
+		if (messageHandler != null) {
+			modelRunner.handleWith(messageHandler);
+		}
+		if (unhandledMessageHandler != null) {
+			modelRunner.handleUnhandledWith(unhandledMessageHandler);
+		}
+		if (eventPublisher != null) {
+			modelRunner.publishWith(eventPublisher);
+		}
+		if (maxStepsPerMessage != null) {
+			modelRunner.limitStepsPerMessageTo(maxStepsPerMessage);
+		}
+		return modelRunner;
+	}
+
+	/**
+	 * Starts a new session, and triggers its autonomous system reactions, like
+	 * {@link ModelRunner#run(Model)}.
+	 *
+	 * @return the state of the new session
+	 */
+	public SessionState start() {
+		SessionState sessionState = new SessionState();
+		start(workers.get().modelRunner, sessionState);
+		return sessionState;
+	}
+
+	private void start(ModelRunner modelRunner, SessionState sessionState) {
+		modelRunner.beginSession(model, sessionState);
+		try {
+			modelRunner.startSession();
+		} finally {
+			modelRunner.endSession(sessionState);
+		}
+	}
+
+	/**
+	 * Lets the specified session react to the specified message, like
+	 * {@link ModelRunner#reactTo(Object)}, and updates the session state.
+	 *
+	 * @param <T>          the type of message
+	 * @param <U>          the return type that you as the user expects.
+	 * @param sessionState the state of the session
+	 * @param message      the message object
+	 * @return the event that was published (latest) if the system reacted, or an
+	 *         empty Optional.
+	 * @throws MoreThanOneStepCanReact when more than one step can react
+	 * @throws InfiniteRepetition      when the session runs more steps than
+	 *                                 allowed for the message
+	 * @throws NestedCallOfReactTo     when called from a system reaction, or a
+	 *                                 handler, of the same thread
+	 */
+	public <T, U> Optional<U> reactTo(SessionState sessionState, T message) {
+		Objects.requireNonNull(sessionState);
+		Objects.requireNonNull(message);
+
+		Optional<U> latestPublishedEvent = reactTo(workers.get().modelRunner, sessionState, message);
+		return latestPublishedEvent;
+	}
+
+	private <T, U> Optional<U> reactTo(ModelRunner modelRunner, SessionState sessionState, T message) {
+		modelRunner.beginSession(model, sessionState);
+		try {
+			Optional<U> latestPublishedEvent = modelRunner.reactTo(message);
+			return latestPublishedEvent;
+		} finally {
+			modelRunner.endSession(sessionState);
+		}
+	}
+
+	/**
+	 * Starts a new session with the specified id, and stores its state in the
+	 * specified store. If the store already contains a session with that id, it
+	 * is replaced.
+	 *
+	 * @param sessionStore the store
+	 * @param sessionId    the id of the session
+	 * @throws IllegalStateException if the store is full
+	 */
+	public void start(SessionStore sessionStore, long sessionId) {
+		Objects.requireNonNull(sessionStore);
+
+		Worker worker = workers.get();
+		SessionState sessionState = worker.reusableSessionState();
+		sessionState.reset();
+		try {
+			start(worker.modelRunner, sessionState);
+		} finally {
+			sessionStore.put(sessionId, sessionState);
+		}
+	}
+
+	/**
+	 * Lets the session with the specified id react to the specified message, like
+	 * {@link #reactTo(SessionState, Object)}. The session's state is loaded from
+	 * the specified store, and stored back afterwards, without creating a
+	 * {@link SessionState} object per session. If the store doesn't contain the
+	 * session, it is started first, see {@link #start(SessionStore, long)}.
+	 *
+	 * @param <T>          the type of message
+	 * @param <U>          the return type that you as the user expects.
+	 * @param sessionStore the store
+	 * @param sessionId    the id of the session
+	 * @param message      the message object
+	 * @return the event that was published (latest) if the system reacted, or an
+	 *         empty Optional.
+	 * @throws MoreThanOneStepCanReact when more than one step can react
+	 * @throws InfiniteRepetition      when the session runs more steps than
+	 *                                 allowed for the message
+	 * @throws NestedCallOfReactTo     when called from a system reaction, or a
+	 *                                 handler, of the same thread
+	 * @throws IllegalStateException   if the session is new, and the store is full
+	 */
+	public <T, U> Optional<U> reactTo(SessionStore sessionStore, long sessionId, T message) {
+		Objects.requireNonNull(sessionStore);
+		Objects.requireNonNull(message);
+
+		Worker worker = workers.get();
+		SessionState sessionState = worker.reusableSessionState();
+		if (!sessionStore.load(sessionId, sessionState)) {
+			sessionState.reset();
+			start(worker.modelRunner, sessionState);
+		}
+		try {
+			Optional<U> latestPublishedEvent = reactTo(worker.modelRunner, sessionState, message);
+			return latestPublishedEvent;
+		} finally {
+			sessionStore.put(sessionId, sessionState);
+		}
+	}
+
+	/**
+	 * Stops the specified session. It will not react to messages anymore.
+	 *
+	 * @param sessionState the state of the session
+	 */
+	public void stop(SessionState sessionState) {
+		sessionState.setRunning(false);
+	}
+
+	/**
+	 * Returns the latest step run by the specified session.
+	 *
+	 * @param sessionState the state of the session
+	 * @return the latest step run, or an empty optional if no step has been run
+	 */
+	public Optional<Step> getLatestStep(SessionState sessionState) {
+		Step latestStep = model.compile().getStep(sessionState.getLatestStepId());
+		return Optional.ofNullable(latestStep);
+	}
+
+	/**
+	 * Returns the model shared by the sessions.
+	 *
+	 * @return the model
+	 */
+	public Model getModel() {
+		return model;
+	}
+
+	/**
+	 * The model runner of a thread, and the session state object it reuses for
+	 * sessions in a store.
+	 */
+	private class Worker {
+		private final ModelRunner modelRunner = createModelRunner();
+		private final SessionState sessionState = new SessionState();
+
+		/**
+		 * Returns the reusable session state, unless a session of the thread is
+		 * already running, e.g. when called from a system reaction.
+		 *
+		 * @throws NestedCallOfReactTo if a session is running
+		 */
+		private SessionState reusableSessionState() {
+			if (modelRunner.isRunningSession()) {
+				throw new NestedCallOfReactTo();
+			}
+			return sessionState;
+		}
+	}
+}
@@ -1,6 +1,17 @@
 package org.requirementsascode;
 
+import static org.requirementsascode.CompiledModel.CONDITION;
+import static org.requirementsascode.CompiledModel.DIFFERENT_FLOW;
+import static org.requirementsascode.CompiledModel.FLOW_POSITION;
+import static org.requirementsascode.CompiledModel.MISSING_ACTORS;
+import static org.requirementsascode.CompiledModel.MISSING_MESSAGE_CLASS;
+import static org.requirementsascode.CompiledModel.NO_INTERRUPTING_STEP;
+import static org.requirementsascode.CompiledModel.NO_STEP;
+import static org.requirementsascode.CompiledModel.REACT_WHILE;
+import static org.requirementsascode.CompiledModel.RIGHT_ACTOR;
+
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
@@ -10,7 +21,6 @@ import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
 import java.util.function.Consumer;
-import java.util.function.Predicate;
 
 import org.requirementsascode.exception.InfiniteRepetition;
 import org.requirementsascode.exception.MissingUseCaseStepPart;
@@ -27,12 +37,20 @@ import org.requirementsascode.exception.NestedCallOfReactTo;
  */
 public class ModelRunner {
 	private static final Class<?> SYSTEM_EVENT_CLASS = ModelRunner.class;
+	private static final int DEFAULT_MAX_STEPS_PER_MESSAGE = 100_000;
+	private static final ThreadLocal<StepCount> STEP_COUNT = ThreadLocal.withInitial(StepCount::new);
 
   private AbstractActor owningActor;
 	private AbstractActor runActor;
+	private long runActorMask;
 
 	private Model model;
+	private CompiledModel compiledModel;
 	private Step latestStep;
+	private int latestStepId;
+	private final TransitionCache transitionCache;
+	private final PendingMessages pendingMessages;
+	private int maxStepsPerMessage;
 	private Object latestPublishedEvent;
 	private boolean isRunning;
 	private StepToBeRun stepToBeRun;
@@ -43,11 +61,24 @@ public class ModelRunner {
 	private List<Object> recordedMessages;
 	private boolean isRecording;
   private boolean nestedReactToMessageCallCausesException;
+	private boolean isScanningSteps;
+	private int stepScan;
+	private int[] conditionScans;
+	private boolean isAdaptingCheckOrder;
+	private boolean[] conditionResults;
+	private Class<?> interruptCheckMessageClass;
+	private boolean interruptCheckResult;
+	private int recordingCursor;
+	private boolean isRunningSession;
+	private boolean isPublishingToRecipientsAsync;
 
 	/**
 	 * Constructor for creating a model runner.
 	 */
 	public ModelRunner() {
+		this.transitionCache = new TransitionCache();
+		this.pendingMessages = new PendingMessages();
+		this.maxStepsPerMessage = DEFAULT_MAX_STEPS_PER_MESSAGE;
 		handleWith(this::runStep);
 		publishWith(this::publishMessage);
 	}
@@ -57,13 +88,31 @@ public class ModelRunner {
 	}
 	
 	private <T> void publishMessage(T message) {
-		Optional<AbstractActor> optionalToActor = getLatestStep().flatMap(ls -> ls.getPublishTo());
+		AbstractActor toActor = latestStep == null ? null : latestStep.getPublishToActor();
     nestedReactToMessageCallCausesException = false;
-		if(optionalToActor.isPresent()) {
-		  AbstractActor owningActor = getOwningActor().orElse(model.getUserActor());
-			optionalToActor.get().reactTo(message, owningActor);
+		if(toActor != null) {
+		  AbstractActor callingActor = owningActor != null ? owningActor : model.getUserActor();
+			if (isPublishingToRecipientsAsync) {
+				toActor.tellAsync(message, callingActor);
+			} else {
+				reactSynchronously(toActor, message, callingActor);
+			}
 		}else {
-			this.reactToMessage(message);
+			pendingMessages.openCatchingFrame();
+			pendingMessages.push(message);
+		}
+	}
+
+	/**
+	 * The recipient reacts on the stack of this runner, and may publish back to
+	 * it. The step count is shared, but a long enough loop of recipients may still
+	 * overflow the stack before the count exceeds the maximum.
+	 */
+	private <T> void reactSynchronously(AbstractActor toActor, T message, AbstractActor callingActor) {
+		try {
+			toActor.reactTo(message, callingActor);
+		} catch (StackOverflowError err) {
+			throw new InfiniteRepetition(latestStep);
 		}
 	}
 
@@ -112,6 +161,117 @@ public class ModelRunner {
 		return this;
 	}
 
+	/**
+	 * Limits the number of steps the runner runs for a single message passed in
+	 * from outside, including the steps that react to published events and the
+	 * autonomous system reactions. If the runner would run more steps, it throws
+	 * an {@link InfiniteRepetition} exception instead.
+	 * 
+	 * <p>
+	 * The steps of actors that react synchronously to messages published to them
+	 * by the runner's steps count as well, because they run on the same thread,
+	 * as part of the same message. Each runner compares the count with its own
+	 * maximum.
+	 * 
+	 * <p>
+	 * The default is 100,000 steps.
+	 *
+	 * @param maxStepsPerMessage the maximum number of steps, at least 1
+	 * @return this model runner, for chaining
+	 * @throws IllegalArgumentException if the maximum is less than 1
+	 */
+	public ModelRunner limitStepsPerMessageTo(int maxStepsPerMessage) {
+		if (maxStepsPerMessage < 1) {
+			throw new IllegalArgumentException("Maximum number of steps per message must be at least 1, but was "
+				+ maxStepsPerMessage);
+		}
+		this.maxStepsPerMessage = maxStepsPerMessage;
+		return this;
+	}
+
+	/**
+	 * Switches adaptive check ordering on. It is off by default.
+	 * 
+	 * <p>
+	 * To find out whether a step can react, the runner performs several checks,
+	 * e.g. of the actor, the flow position and the condition. When adaptive
+	 * ordering is on, the runner collects statistics about the cost of each check,
+	 * and how often it rejects the step. From time to time, it reorders the
+	 * checks, so that cheap checks that often reject come first. Checks that look
+	 * for missing step parts always come first. Only the actor and different flow
+	 * checks are reordered. Checks that evaluate user code, i.e. custom flow
+	 * positions, conditions, predicates, and whether an interrupting step can
+	 * react, are always checked last, in model order. Steps with an impure
+	 * condition (see {@link Condition#impure(Condition)}), or that an
+	 * interrupting step with an impure condition may interrupt, keep their order.
+	 * 
+	 * <p>
+	 * The statistics belong to the compiled model, see {@link Model#compile()},
+	 * so all runners of a model that adapt the check order learn together. As the
+	 * cost of the checks is measured, the learned order may differ from run to
+	 * run.
+	 *
+	 * @return this model runner, for chaining
+	 */
+	public ModelRunner adaptCheckOrder() {
+		return adaptCheckOrder(true);
+	}
+
+	/**
+	 * Switches adaptive check ordering on or off, see {@link #adaptCheckOrder()}.
+	 * It is off by default. When it is switched off, the runner performs the
+	 * checks in the order of the model.
+	 *
+	 * @param isAdaptingCheckOrder true to switch adaptive ordering on, false to
+	 *                             switch it off
+	 * @return this model runner, for chaining
+	 */
+	public ModelRunner adaptCheckOrder(boolean isAdaptingCheckOrder) {
+		this.isAdaptingCheckOrder = isAdaptingCheckOrder;
+		return this;
+	}
+
+	/**
+	 * Switches asynchronous publishing to recipients on or off. It is off by
+	 * default.
+	 * 
+	 * <p>
+	 * When a step publishes a message to a recipient, e.g. with
+	 * <code>systemPublish(...).to(recipient)</code>, the runner by default lets
+	 * the recipient react to the message immediately, on the same thread. So a
+	 * chain of actors runs on a single stack, and the caller waits until the end
+	 * of the chain. When asynchronous publishing is on, the runner puts the
+	 * message in the recipient's mailbox instead, see
+	 * {@link AbstractActor#tellAsync(Object, AbstractActor)}, and continues. An
+	 * exception thrown by the recipient is not passed to the publisher. Instead,
+	 * it is passed to the recipient's async exception handler, see
+	 * {@link AbstractActor#handleAsyncExceptionsWith(java.util.function.Consumer)}.
+	 * 
+	 * @param isPublishingToRecipientsAsync true to switch asynchronous publishing
+	 *                                      on, false to switch it off
+	 * @return this model runner, for chaining
+	 */
+	public ModelRunner publishToRecipientsAsync(boolean isPublishingToRecipientsAsync) {
+		this.isPublishingToRecipientsAsync = isPublishingToRecipientsAsync;
+		return this;
+	}
+
+	/**
+	 * Returns a report of the order in which the runner performs the checks of
+	 * each step, one line per step that has been checked since the model was last
+	 * changed, by any runner of the model that adapts the check order. Each line
+	 * contains the step name and the checks in order. For
+	 * checks that have been performed, it also shows how often they rejected the
+	 * step, and their average cost.
+	 *
+	 * @return the report, empty if adaptive check ordering is switched off or no
+	 *         step has been checked
+	 */
+	public String getCheckOrderReport() {
+		String report = isAdaptingCheckOrder && model != null ? model.compile().getAdaptiveCheckOrder().report() : "";
+		return report;
+	}
+
 	/**
 	 * Restarts the runner, resetting it to its original defaults ("no flow has been
 	 * run, no step has been run").
@@ -173,6 +333,64 @@ public class ModelRunner {
 		return this;
 	}
 	
+	/**
+	 * Makes this runner continue the specified session of the specified model,
+	 * until {@link #endSession(SessionState)} is called. Unlike
+	 * {@link #run(Model)}, this doesn't trigger autonomous system reactions. Used
+	 * by {@link ModelEngine}, that reuses a runner for many sessions.
+	 *
+	 * @throws NestedCallOfReactTo      if the runner is already running a session,
+	 *                                  e.g. when called from a system reaction
+	 * @throws IllegalArgumentException if the latest step id of the session isn't
+	 *                                  a step id of the model
+	 */
+	void beginSession(Model model, SessionState sessionState) {
+		if (isRunningSession) {
+			throw new NestedCallOfReactTo();
+		}
+		if (this.model != model) {
+			setModel(model);
+			initializeStepToBeRun();
+		}
+
+		CompiledModel compiledModel = compiledModel();
+		int sessionLatestStepId = sessionState.getLatestStepId();
+		if (sessionLatestStepId >= compiledModel.getNumberOfSteps()) {
+			throw new IllegalArgumentException("Model has no step with id " + sessionLatestStepId);
+		}
+		this.latestStep = compiledModel.getStep(sessionLatestStepId);
+		this.latestStepId = sessionLatestStepId;
+		this.recordingCursor = sessionState.getRecordingCursor();
+		setRunning(sessionState.isRunning());
+		isRunningSession = true;
+	}
+
+	boolean isRunningSession() {
+		return isRunningSession;
+	}
+
+	/**
+	 * Triggers the autonomous system reactions at the start of the session that
+	 * has begun.
+	 */
+	void startSession() {
+		triggerAutonomousSystemReaction();
+	}
+
+	/**
+	 * Saves this runner's state to the specified session, and ends it.
+	 */
+	void endSession(SessionState sessionState) {
+		sessionState.setLatestStepId(latestStepId);
+		sessionState.setRunning(isRunning);
+		sessionState.setRecordingCursor(recordingCursor);
+
+		this.latestStep = null;
+		this.latestStepId = NO_STEP;
+		clearLatestPublishedEvent();
+		isRunningSession = false;
+	}
+
 	private void triggerAutonomousSystemReaction() {
     nestedReactToMessageCallCausesException = false;
 		reactToMessage(this);
@@ -245,8 +463,9 @@ public class ModelRunner {
 	 * @param message the message object
 	 * @return the event that was published (latest) if the system reacted, or an empty Optional.
 	 * @throws MoreThanOneStepCanReact when more than one step can react
-	 * @throws InfiniteRepetition      when a step has an always true condition, or
-	 *                                 there is an infinite loop.
+	 * @throws InfiniteRepetition      when the runner runs more steps than allowed
+	 *                                 for the message, see
+	 *                                 {@link #limitStepsPerMessageTo(int)}
 	 * @throws ClassCastException      when type of the returned instance isn't U
 	 */
 	@SuppressWarnings("unchecked")
@@ -271,78 +490,288 @@ public class ModelRunner {
       throw new NestedCallOfReactTo();
     }
 
-		Class<? extends Object> currentMessageClass = message.getClass();
+		runToCompletion(message);
+	}
+
+	/**
+	 * Reacts to the specified message, and to all messages that are pushed as a
+	 * consequence, in a loop. Nested calls of this method, e.g. from an unhandled
+	 * message handler, only process the messages they pushed themselves.
+	 */
+	private void runToCompletion(Object message) {
+		int bottom = pendingMessages.size();
+		StepCount stepCount = STEP_COUNT.get();
+		if (stepCount.nestingDepth++ == 0) {
+			stepCount.stepsRun = 0;
+		}
+		pendingMessages.push(message);
 
 		try {
-			int nrOfStepsThatCanReact = 0;
-			Step stepThatWillReact = null;
-			Collection<Step> steps = model.getModifiableSteps();
+			while (pendingMessages.size() > bottom) {
+				Object pendingMessage = pendingMessages.pop();
+				if (!isRunning) {
+					continue;
+				}
+
+				try {
+					Step stepThatWillReact = findStepThatCanReactTo(pendingMessage.getClass());
+
+					if (stepThatWillReact != null) {
+						if (++stepCount.stepsRun > maxStepsPerMessage) {
+							throw new InfiniteRepetition(stepThatWillReact);
+						}
+						triggerSystemReaction(pendingMessage, stepThatWillReact);
+					} else if (unhandledMessageHandler != null && !isSystemEvent(pendingMessage)) {
+						unhandledMessageHandler.accept(pendingMessage);
+					} else if (pendingMessage instanceof RuntimeException) {
+						throw (RuntimeException) pendingMessage;
+					}
+				} catch (InfiniteRepetition e) {
+					throw e;
+				} catch (RuntimeException e) {
+					handleExceptionOfPublishingStep(e, bottom);
+				}
+			}
+		} finally {
+			stepCount.nestingDepth--;
+			pendingMessages.truncate(bottom);
+		}
+	}
+
+	/**
+	 * The number of steps run for the message passed in from outside, shared by
+	 * all runners that run nested on the same thread.
+	 */
+	private static class StepCount {
+		private int stepsRun;
+		private int nestingDepth;
+	}
+
+	/**
+	 * Handles an exception thrown while the runner reacted to a message published
+	 * by a step, as if the step's system reaction had thrown it. If no step
+	 * published the message, the exception is rethrown.
+	 */
+	private void handleExceptionOfPublishingStep(RuntimeException e, int bottom) {
+		int frameHeight = pendingMessages.getCatchingFrameHeight();
+		if (frameHeight <= bottom) {
+			throw e;
+		}
+		pendingMessages.truncate(frameHeight);
+		pendingMessages.closeCatchingFrame();
+		handleException(e);
+	}
+	
+	private Step findStepThatCanReactTo(Class<? extends Object> currentMessageClass) {
+		int nrOfStepsThatCanReact = 0;
+		int stepIdThatWillReact = NO_STEP;
+		CompiledModel compiledModel = compiledModel();
+		Transitions transitions = transitionCache.getTransitions(compiledModel, currentMessageClass);
+		int[] stepIds = compiledModel.getCandidateStepIds(transitions, latestStepId);
+		boolean isUnambiguous = compiledModel.isUnambiguous(transitions, latestStepId);
 
-			for (Step step : steps) {
-				if (canReactToMessageClass(step, currentMessageClass)) {
-					stepThatWillReact = step;
+		startStepScan();
+		try {
+			for (int stepId : stepIds) {
+				if (canReact(compiledModel, stepId, true)) {
+					stepIdThatWillReact = stepId;
 					nrOfStepsThatCanReact++;
 
-					if (nrOfStepsThatCanReact > 1) {
+					if (isUnambiguous) {
+						break;
+					} else if (nrOfStepsThatCanReact > 1) {
 						// No more than one step is allowed to react to a message
-						throw new MoreThanOneStepCanReact(steps);
+						throw new MoreThanOneStepCanReact(model.getModifiableSteps());
 					}
 				}
 			}
+		} finally {
+			endStepScan();
+		}
+		return compiledModel.getStep(stepIdThatWillReact);
+	}
 
-			if (nrOfStepsThatCanReact == 1) {
-				triggerSystemReaction(message, stepThatWillReact);
-			} else if (unhandledMessageHandler != null && !isSystemEvent(message)) {
-				unhandledMessageHandler.accept(message);
-			} else if (message instanceof RuntimeException) {
-				throw (RuntimeException) message;
+	/**
+	 * Returns whether an interrupting step can react to messages of the specified
+	 * class, i.e. whether it would be run instead of an interruptable step with
+	 * that message class.
+	 * 
+	 * While the runner scans the steps for a message, the result is computed once
+	 * and reused for every interruptable step that asks for the same message class.
+	 * The runner's state doesn't change during the scan, so that is safe.
+	 * 
+	 * @param messageClass the message class of the interruptable step
+	 * @return true if at least one interrupting step can react, false otherwise
+	 */
+	boolean canInterruptingStepReactTo(Class<?> messageClass) {
+		if (isScanningSteps && messageClass == interruptCheckMessageClass) {
+			return interruptCheckResult;
+		}
+
+		boolean canReact = false;
+		CompiledModel compiledModel = compiledModel();
+		int[] interruptingStepIds = compiledModel.getInterruptingStepIds(messageClass, latestStepId);
+		for (int interruptingStepId : interruptingStepIds) {
+			if (canReact(compiledModel, interruptingStepId, true)) {
+				canReact = true;
+				break;
 			}
-		} catch (StackOverflowError err) {
-			throw new InfiniteRepetition(latestStep);
 		}
+
+		if (isScanningSteps) {
+			interruptCheckMessageClass = messageClass;
+			interruptCheckResult = canReact;
+		}
+		return canReact;
 	}
-	
-	private boolean canReact(Step step) {
-		boolean stepCanReact = hasRightActor(step) && hasTruePredicate(step);
-		return stepCanReact;
+
+	private void startStepScan() {
+		interruptCheckMessageClass = null;
+		isScanningSteps = true;
+		if (++stepScan == 0) {
+			Arrays.fill(conditionScans, 0);
+			stepScan = 1;
+		}
+	}
+
+	/**
+	 * Evaluates the specified condition. While the runner scans the steps for a
+	 * message, it evaluates each pure condition only once, and reuses the result.
+	 */
+	private boolean evaluate(Condition condition, int conditionId) {
+		if (!isScanningSteps || conditionId < 0 || conditionId >= conditionScans.length) {
+			return condition.evaluate();
+		}
+		if (conditionScans[conditionId] != stepScan) {
+			conditionResults[conditionId] = condition.evaluate();
+			conditionScans[conditionId] = stepScan;
+		}
+		return conditionResults[conditionId];
+	}
+
+	private void endStepScan() {
+		isScanningSteps = false;
+	}
+
+	/**
+	 * Performs the compiled checks of the specified step. The step's message class
+	 * and flow position have already been matched by looking up the step in the
+	 * compiled model's transition table.
+	 */
+	private boolean canReact(CompiledModel compiledModel, int stepId, boolean isMessageClassRequired) {
+		int[] checks = compiledModel.getChecks(stepId);
+		AdaptiveCheckOrder checkOrder = adaptiveCheckOrderOf(compiledModel);
+		if (checkOrder == null) {
+			for (int check : checks) {
+				if (!isCheckPassed(compiledModel, stepId, check, isMessageClassRequired)) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		boolean canReact;
+		if (checkOrder.startEvaluation(stepId)) {
+			canReact = canReactAndRecordChecks(compiledModel, stepId, isMessageClassRequired, checks, checkOrder);
+		} else {
+			canReact = true;
+			for (int position : checkOrder.getOrder(stepId)) {
+				if (!isCheckPassed(compiledModel, stepId, checks[position], isMessageClassRequired)) {
+					canReact = false;
+					break;
+				}
+			}
+		}
+		checkOrder.endEvaluation(stepId);
+		return canReact;
+	}
+
+	private boolean canReactAndRecordChecks(CompiledModel compiledModel, int stepId, boolean isMessageClassRequired,
+		int[] checks, AdaptiveCheckOrder checkOrder) {
+		for (int position : checkOrder.getOrder(stepId)) {
+			long startNanos = System.nanoTime();
+			boolean isCheckPassed = isCheckPassed(compiledModel, stepId, checks[position], isMessageClassRequired);
+			checkOrder.recordCheck(stepId, position, isCheckPassed, System.nanoTime() - startNanos);
+			if (!isCheckPassed) {
+				return false;
+			}
+		}
+		return true;
 	}
 
-	boolean canReactToMessageClass(Step step, Class<? extends Object> currentMessageClass) {
-		boolean stepCanReact = stepMessageClassIsSameOrSuperclass(step, currentMessageClass) && canReact(step);
-		return stepCanReact;
+	private AdaptiveCheckOrder adaptiveCheckOrderOf(CompiledModel compiledModel) {
+		AdaptiveCheckOrder checkOrder = isAdaptingCheckOrder ? compiledModel.getAdaptiveCheckOrder() : null;
+		return checkOrder;
+	}
+
+	private boolean isCheckPassed(CompiledModel compiledModel, int stepId, int check, boolean isMessageClassRequired) {
+		boolean isCheckPassed;
+		switch (check) {
+		case MISSING_MESSAGE_CLASS:
+			if (isMessageClassRequired) {
+				throw new MissingUseCaseStepPart(compiledModel.getStep(stepId), "on/user");
+			}
+			isCheckPassed = true;
+			break;
+		case MISSING_ACTORS:
+			throw new MissingUseCaseStepPart(compiledModel.getStep(stepId), "actor");
+		case RIGHT_ACTOR:
+			if (compiledModel.hasActorMasks()) {
+				isCheckPassed = (compiledModel.getActorMask(stepId) & runActorMask) != 0;
+			} else {
+				isCheckPassed = hasRightActor(compiledModel.getStep(stepId));
+			}
+			break;
+		case DIFFERENT_FLOW:
+			isCheckPassed = compiledModel.isInDifferentFlow(stepId, latestStepId);
+			break;
+		case FLOW_POSITION:
+			isCheckPassed = compiledModel.getFlowPosition(stepId).test(this);
+			break;
+		case CONDITION:
+			isCheckPassed = evaluate(compiledModel.getCondition(stepId), compiledModel.getConditionId(stepId));
+			break;
+		case NO_INTERRUPTING_STEP:
+			isCheckPassed = !canInterruptingStepReactTo(compiledModel.getMessageClass(stepId));
+			break;
+		case REACT_WHILE:
+			isCheckPassed = evaluate(compiledModel.getReactWhile(stepId), compiledModel.getReactWhileId(stepId));
+			break;
+		default:
+			isCheckPassed = compiledModel.getPredicate(stepId).test(this);
+		}
+		return isCheckPassed;
 	}
 	
   private boolean hasRightActor(Step step) {
-    final Predicate<AbstractActor> isSystemOrRunActor = actor -> actor.equals(model.getUserActor())
-      || actor.equals(model.getSystemActor()) || actor.equals(runActor);
+		AbstractActor userActor = model.getUserActor();
+		AbstractActor systemActor = model.getSystemActor();
 
 		AbstractActor[] stepActors = step.getActors();
-		if (stepActors == null) {
-			throw (new MissingUseCaseStepPart(step, "actor"));
-		}
-
 		for (AbstractActor stepActor : stepActors) {
-			if (isSystemOrRunActor.test(stepActor)) {
+			if (stepActor.equals(userActor) || stepActor.equals(systemActor) || stepActor.equals(runActor)) {
 				return true;
 			}
 		}
 		return false;
 	}
-	
-	private boolean stepMessageClassIsSameOrSuperclass(Step step, Class<?> currentMessageClass) {
-		Class<?> stepMessageClass = step.getMessageClass();
-		if (stepMessageClass == null) {
-			throw new MissingUseCaseStepPart(step, "on/user");
-		}
+
+	static boolean isSameOrSuperclass(Class<?> stepMessageClass, Class<?> currentMessageClass) {
 		boolean result = hasSystemEventClass(currentMessageClass)? hasSystemEventClass(stepMessageClass)
 			: stepMessageClass.isAssignableFrom(currentMessageClass);
 		return result;
 	}
 
-	private boolean hasTruePredicate(Step step) {
-		Predicate<ModelRunner> predicate = step.getPredicate();
-		boolean result = predicate.test(this);
-		return result;
+	private CompiledModel compiledModel() {
+		CompiledModel currentCompiledModel = model.compile();
+		if (currentCompiledModel != compiledModel) {
+			compiledModel = currentCompiledModel;
+			latestStepId = compiledModel.toStepId(latestStep);
+			conditionScans = new int[compiledModel.getNumberOfConditions()];
+			conditionResults = new boolean[compiledModel.getNumberOfConditions()];
+			updateRunActorMask();
+		}
+		return compiledModel;
 	}
 
 	private void triggerSystemReaction(Object message, Step step) {
@@ -354,6 +783,10 @@ public class ModelRunner {
 		recordStepNameAndMessage(step, message);
 
 		setLatestStep(step);
+		recordingCursor++;
+
+		// Pushed first, so that the published message or thrown exception is reacted to before
+		pendingMessages.push(this);
 
 		try {
       nestedReactToMessageCallCausesException = true;
@@ -361,15 +794,15 @@ public class ModelRunner {
 			publishReturnedMessage();
 		} catch (Exception e) {
 			handleException(e);
+		} finally {
+			nestedReactToMessageCallCausesException = false;
 		}
-
-		triggerAutonomousSystemReaction();
 	}
 
   private void publishReturnedMessage() {
-    Optional<Object> messageToBePublished = stepToBeRun.getMessageToBePublished();
-    if(messagePublisher != null && messageToBePublished.isPresent()) {
-      messagePublisher.accept(messageToBePublished.get());
+    Object messageToBePublished = stepToBeRun.getReturnedMessage();
+    if(messagePublisher != null && messageToBePublished != null) {
+      messagePublisher.accept(messageToBePublished);
     }
   }
 	
@@ -377,7 +810,7 @@ public class ModelRunner {
 		return hasSystemEventClass(message.getClass());
 	}
 	
-	private boolean hasSystemEventClass(Class<?> messageClass) {
+	private static boolean hasSystemEventClass(Class<?> messageClass) {
 		return SYSTEM_EVENT_CLASS.equals(messageClass);
 	}
 
@@ -411,12 +844,18 @@ public class ModelRunner {
 		}
 		boolean canReact = false;
 		
-		Collection<Step> steps = model.getModifiableSteps();
-		for (Step step : steps) {
-			if (canReactToMessageClass(step, messageClass)) {
-				canReact = true;
-				break;
+		CompiledModel compiledModel = compiledModel();
+		int[] stepIds = compiledModel.getCandidateStepIds(messageClass, latestStepId);
+		startStepScan();
+		try {
+			for (int stepId : stepIds) {
+				if (canReact(compiledModel, stepId, true)) {
+					canReact = true;
+					break;
+				}
 			}
+		} finally {
+			endStepScan();
 		}
 
 		return canReact;
@@ -434,13 +873,19 @@ public class ModelRunner {
 		
 		if(isRunning) {
 			reactToTypes = new LinkedHashSet<>();
-			Collection<Step> steps = model.getModifiableSteps();
+			CompiledModel compiledModel = compiledModel();
+			int[] stepIds = compiledModel.getCandidateStepIds(latestStepId);
 			
-			for (Step step : steps) {
-				if (canReact(step)) {
-					Class<?> messageClass = step.getMessageClass();
-					reactToTypes.add(messageClass);
+			startStepScan();
+			try {
+				for (int stepId : stepIds) {
+					if (canReact(compiledModel, stepId, false)) {
+						Class<?> messageClass = compiledModel.getMessageClass(stepId);
+						reactToTypes.add(messageClass);
+					}
 				}
+			} finally {
+				endStepScan();
 			}
 		} else {
 			reactToTypes = Collections.emptySet();
@@ -461,11 +906,17 @@ public class ModelRunner {
 		Set<Step> stepsThatCanReact = new HashSet<>(2);
 		
 		if(isRunning) {
-			Collection<Step> steps = model.getModifiableSteps();
-			for (Step step : steps) {
-				if (canReactToMessageClass(step, messageClass)) {
-					stepsThatCanReact.add(step);
+			CompiledModel compiledModel = compiledModel();
+			int[] stepIds = compiledModel.getCandidateStepIds(messageClass, latestStepId);
+			startStepScan();
+			try {
+				for (int stepId : stepIds) {
+					if (canReact(compiledModel, stepId, true)) {
+						stepsThatCanReact.add(compiledModel.getStep(stepId));
+					}
 				}
+			} finally {
+				endStepScan();
 			}
 		}
 		
@@ -478,11 +929,20 @@ public class ModelRunner {
 	 * runner reacts to the exception. You may replace this with a more
 	 * sophisticated behavior, that for example involves some kind of logging.
 	 *
+	 * <p>
+	 * Note that this method doesn't react to the exception synchronously. It only
+	 * queues the exception as a pending message, and the model runner reacts to
+	 * it after this method has returned, before any other message. So when an
+	 * overriding method calls this method, the step that handles the exception
+	 * hasn't run yet when the call returns. An exception thrown while reacting to
+	 * the exception is handled the same way, one after the other, without nesting
+	 * the calls.
+	 *
 	 * @param e the exception that has been thrown by the system reaction
 	 */
 	protected void handleException(Exception e) {
     nestedReactToMessageCallCausesException = false;
-		reactToMessage(e);
+		pendingMessages.push(e);
 	}
 
 	/**
@@ -506,6 +966,7 @@ public class ModelRunner {
 	 */
 	public void setLatestStep(Step latestStep) {
 		this.latestStep = latestStep;
+		this.latestStepId = compiledModel == null ? NO_STEP : compiledModel.toStepId(latestStep);
 	}
 
 	/**
@@ -604,6 +1065,18 @@ public class ModelRunner {
 	
 	private void setRunActor(AbstractActor runActor) {
 		this.runActor = Objects.requireNonNull(runActor);
+		updateRunActorMask();
+	}
+
+	/**
+	 * Combines the masks of the actors a step may have to react: the user, the
+	 * system and the run actor.
+	 */
+	private void updateRunActorMask() {
+		if (compiledModel != null && compiledModel.hasActorMasks()) {
+			runActorMask = compiledModel.getActorMask(model.getUserActor())
+				| compiledModel.getActorMask(model.getSystemActor()) | compiledModel.getActorMask(runActor);
+		}
 	}
 	
 	private void clearLatestPublishedEvent() {
@@ -0,0 +1,290 @@
+package org.requirementsascode;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import org.requirementsascode.queue.RingBufferEventQueue;
+
+/**
+ * A thread safe facade for model runners that share a model, like
+ * {@link ConcurrentModelRunner}, but the model runners react on threads of
+ * their own.
+ *
+ * <p>
+ * The runner owns a fixed number of partitions. Each partition has a single
+ * thread, a bounded queue, and the model runners for its keys. A message is
+ * routed by its key, e.g. an aggregate id, to a partition, and put in the
+ * partition's queue. The partition's thread then lets the model runner for the
+ * key react. So messages with the same key are handled in the order they have
+ * been put, and partitions run in parallel, without sharing locks or model
+ * runners. When a partition's queue is full, putting a message waits until
+ * there is room.
+ *
+ * <p>
+ * A system reaction may put messages, e.g. with {@link #tellAsync(Object)}.
+ * If it puts a message for a key of its own partition, the message is kept in
+ * a separate, unbounded queue of the partition, instead of waiting for room in
+ * the full queue, which would wait forever. The partition handles such
+ * messages right after the reaction, before the messages of its bounded queue.
+ * But a reaction that puts messages for keys of other partitions does wait if
+ * their queues are full, so if two partitions do that, they may wait for each
+ * other forever.
+ *
+ * @author b_muth
+ */
+public class PartitionedModelRunner {
+	private static final int DEFAULT_PARTITION_CAPACITY = 1024;
+
+	private final Model model;
+	private final Function<Object, ?> keyExtractor;
+	private final Supplier<ModelRunner> modelRunnerSupplier;
+	private final Partition[] partitions;
+
+	/**
+	 * Creates a partitioned model runner, with a new {@link ModelRunner} per key,
+	 * and a partition per available processor.
+	 *
+	 * @param model        the model that defines the behavior for every key
+	 * @param keyExtractor the function that returns the key of a message, not null
+	 */
+	public PartitionedModelRunner(Model model, Function<Object, ?> keyExtractor) {
+		this(model, keyExtractor, ModelRunner::new, Runtime.getRuntime().availableProcessors(),
+			DEFAULT_PARTITION_CAPACITY);
+	}
+
+	/**
+	 * Creates a partitioned model runner.
+	 *
+	 * @param model               the model that defines the behavior for every key
+	 * @param keyExtractor        the function that returns the key of a message,
+	 *                            not null
+	 * @param modelRunnerSupplier supplies a new, configured model runner when a
+	 *                            message with an unknown key arrives. The model
+	 *                            runner will then be run with the model.
+	 * @param numberOfPartitions  the number of partitions, i.e. threads, at least 1
+	 * @param partitionCapacity   the maximum number of messages waiting in a
+	 *                            partition's queue, at least 1
+	 * @throws IllegalArgumentException if the number of partitions, or the
+	 *                                  capacity, is less than 1
+	 */
+	public PartitionedModelRunner(Model model, Function<Object, ?> keyExtractor,
+		Supplier<ModelRunner> modelRunnerSupplier, int numberOfPartitions, int partitionCapacity) {
+		if (numberOfPartitions < 1) {
+			throw new IllegalArgumentException("Number of partitions must be at least 1, but was " + numberOfPartitions);
+		}
+		if (partitionCapacity < 1) {
+			throw new IllegalArgumentException("Partition capacity must be at least 1, but was " + partitionCapacity);
+		}
+		this.model = Objects.requireNonNull(model);
+		this.keyExtractor = Objects.requireNonNull(keyExtractor);
+		this.modelRunnerSupplier = Objects.requireNonNull(modelRunnerSupplier);
+
+		// Compile eagerly, so that partitions don't need to do it concurrently
+		model.compile();
+
+		this.partitions = new Partition[numberOfPartitions];
+		for (int i = 0; i < numberOfPartitions; i++) {
+			partitions[i] = new Partition(partitionCapacity);
+		}
+	}
+
+	/**
+	 * Routes the specified message to the partition of its key, and returns
+	 * without waiting for the model runner to react, unless the partition's queue
+	 * is full.
+	 *
+	 * <p>
+	 * An exception or error thrown while reacting to the message is passed to the
+	 * uncaught exception handler of the partition's thread, and the partition
+	 * continues with the next message. Use {@link #askAsync(Object)} to receive
+	 * the exception instead.
+	 *
+	 * @param <T>     the type of message
+	 * @param message the message object
+	 */
+	public <T> void tellAsync(T message) {
+		Objects.requireNonNull(message);
+		Object key = keyOf(message);
+
+		Partition partition = partitionOf(key);
+		partition.put(() -> partition.modelRunnerFor(key).reactTo(message));
+	}
+
+	/**
+	 * Routes the specified message to the partition of its key, like
+	 * {@link #tellAsync(Object)}, and returns a future for the result.
+	 *
+	 * @param <T>     the type of message
+	 * @param <U>     the type of event that you as the user expects.
+	 * @param message the message object
+	 * @return the future for the event that was published (latest) if the system
+	 *         reacted, or an empty Optional. If the reaction throws an exception,
+	 *         the future is completed exceptionally with it.
+	 * @see ModelRunner#reactTo(Object)
+	 */
+	public <T, U> CompletableFuture<Optional<U>> askAsync(T message) {
+		Objects.requireNonNull(message);
+		Object key = keyOf(message);
+
+		Partition partition = partitionOf(key);
+		CompletableFuture<Optional<U>> future = new CompletableFuture<>();
+		partition.put(() -> {
+			try {
+				Optional<U> latestPublishedEvent = partition.modelRunnerFor(key).reactTo(message);
+				future.complete(latestPublishedEvent);
+			} catch (Exception e) {
+				future.completeExceptionally(e);
+			} catch (Error e) {
+				future.completeExceptionally(e);
+				throw e;
+			}
+		});
+		return future;
+	}
+
+	/**
+	 * Returns the latest step that has been run for the specified key, after the
+	 * messages put before this call have been handled.
+	 *
+	 * @param key the key
+	 * @return the future for the latest step run, or an empty optional if there is
+	 *         no model runner for the key, or it hasn't run a step yet
+	 */
+	public CompletableFuture<Optional<Step>> getLatestStep(Object key) {
+		Objects.requireNonNull(key);
+
+		Partition partition = partitionOf(key);
+		CompletableFuture<Optional<Step>> future = new CompletableFuture<>();
+		partition.put(() -> {
+			ModelRunner modelRunner = partition.modelRunners.get(key);
+			future.complete(modelRunner == null ? Optional.empty() : modelRunner.getLatestStep());
+		});
+		return future;
+	}
+
+	/**
+	 * Discards the model runner for the specified key, after the messages put
+	 * before this call have been handled. A later message with the key starts
+	 * from the beginning, with a new model runner.
+	 *
+	 * @param key the key
+	 * @return the future for whether there was a model runner for the key
+	 */
+	public CompletableFuture<Boolean> remove(Object key) {
+		Objects.requireNonNull(key);
+
+		Partition partition = partitionOf(key);
+		CompletableFuture<Boolean> future = new CompletableFuture<>();
+		partition.put(() -> future.complete(partition.modelRunners.remove(key) != null));
+		return future;
+	}
+
+	/**
+	 * Stops the threads of the partitions. Messages that haven't been handled yet
+	 * are discarded, and their futures are never completed.
+	 */
+	public void stop() {
+		for (Partition partition : partitions) {
+			partition.queue.stop();
+		}
+	}
+
+	/**
+	 * Returns the model shared by the model runners.
+	 *
+	 * @return the model
+	 */
+	public Model getModel() {
+		return model;
+	}
+
+	/**
+	 * Returns the number of partitions, i.e. threads.
+	 *
+	 * @return the number of partitions
+	 */
+	public int getNumberOfPartitions() {
+		return partitions.length;
+	}
+
+	private Object keyOf(Object message) {
+		Object key = keyExtractor.apply(message);
+		if (key == null) {
+			throw new NullPointerException("Key extractor returned null for message: " + message);
+		}
+		return key;
+	}
+
+	private Partition partitionOf(Object key) {
+		int hash = key.hashCode();
+		hash ^= (hash >>> 16);
+		return partitions[Math.floorMod(hash, partitions.length)];
+	}
+
+	/**
+	 * A thread, with the queue of tasks it runs, and the model runners only it
+	 * uses. Tasks the thread puts itself go to a local queue, so that the thread
+	 * never waits for itself.
+	 */
+	private class Partition {
+		private final Map<Object, ModelRunner> modelRunners = new HashMap<>();
+		private final ArrayDeque<Runnable> localTasks = new ArrayDeque<>();
+		private final RingBufferEventQueue queue;
+		private volatile Thread thread;
+
+		private Partition(int capacity) {
+			this.queue = new RingBufferEventQueue(this::run, capacity);
+		}
+
+		private void put(Runnable task) {
+			if (Thread.currentThread() == thread) {
+				localTasks.add(task);
+			} else {
+				queue.put(task);
+			}
+		}
+
+		private void run(Object task) {
+			if (thread == null) {
+				thread = Thread.currentThread();
+			}
+			runSurvivingFailure((Runnable) task);
+
+			Runnable localTask;
+			while ((localTask = localTasks.poll()) != null) {
+				runSurvivingFailure(localTask);
+			}
+		}
+
+		/**
+		 * Runs the task, and passes anything it throws to the uncaught exception
+		 * handler, instead of letting it end the partition's thread. Otherwise,
+		 * the tasks put later would never run.
+		 */
+		private void runSurvivingFailure(Runnable task) {
+			try {
+				task.run();
+			} catch (Throwable e) {
+				Thread currentThread = Thread.currentThread();
+				currentThread.getUncaughtExceptionHandler().uncaughtException(currentThread, e);
+			}
+		}
+
+		private ModelRunner modelRunnerFor(Object key) {
+			ModelRunner modelRunner = modelRunners.get(key);
+			if (modelRunner == null) {
+				modelRunner = Objects.requireNonNull(modelRunnerSupplier.get());
+				modelRunner.run(model);
+				// Stored only after running succeeded, so that a failed start is retried
+				modelRunners.put(key, modelRunner);
+			}
+			return modelRunner;
+		}
+	}
+}
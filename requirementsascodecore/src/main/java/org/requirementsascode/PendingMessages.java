@@ -0,0 +1,102 @@
+package org.requirementsascode;
+
+import java.util.Arrays;
+
+/**
+ * The stack of messages a model runner still needs to react to, while it runs
+ * to completion for a message passed in from outside.
+ *
+ * <p>
+ * Before a step's system reaction is run, the runner pushes the autonomous
+ * system reaction. Messages published or thrown by the system reaction are
+ * pushed on top of it, so they are reacted to first. That is the order in which
+ * a recursive implementation would react to them, without the nested calls.
+ *
+ * <p>
+ * A catching frame marks the messages published by a step. An exception thrown
+ * while the runner reacts to these messages is handled on behalf of the
+ * publishing step, like an exception thrown by its system reaction.
+ *
+ * @author b_muth
+ */
+class PendingMessages {
+	private static final int NO_FRAME = -1;
+
+	private Object[] messages;
+	private int size;
+	private int[] frameHeights;
+	private int frameCount;
+
+	PendingMessages() {
+		this.messages = new Object[16];
+		this.frameHeights = new int[8];
+	}
+
+	void push(Object message) {
+		if (size == messages.length) {
+			messages = Arrays.copyOf(messages, size * 2);
+		}
+		messages[size++] = message;
+	}
+
+	/**
+	 * Removes the top message, and closes the catching frames that don't cover
+	 * its position.
+	 *
+	 * @return the top message
+	 */
+	Object pop() {
+		Object message = messages[--size];
+		messages[size] = null;
+		closeFramesAbove(size);
+		return message;
+	}
+
+	int size() {
+		return size;
+	}
+
+	/**
+	 * Removes the messages above the specified size, and the catching frames that
+	 * cover only them.
+	 *
+	 * @param newSize the size to reduce the stack to
+	 */
+	void truncate(int newSize) {
+		while (size > newSize) {
+			messages[--size] = null;
+		}
+		closeFramesAbove(newSize);
+	}
+
+	/**
+	 * Opens a catching frame that covers the messages pushed from now on, until
+	 * they have all been popped.
+	 */
+	void openCatchingFrame() {
+		if (frameCount == frameHeights.length) {
+			frameHeights = Arrays.copyOf(frameHeights, frameCount * 2);
+		}
+		frameHeights[frameCount++] = size;
+	}
+
+	/**
+	 * Returns the height of the innermost catching frame, i.e. the position of
+	 * the first message it covers.
+	 *
+	 * @return the height, or -1 if no frame is open
+	 */
+	int getCatchingFrameHeight() {
+		return frameCount == 0 ? NO_FRAME : frameHeights[frameCount - 1];
+	}
+
+	void closeCatchingFrame() {
+		frameCount--;
+	}
+
+	private void closeFramesAbove(int height) {
+		while (frameCount > 0 && frameHeights[frameCount - 1] > height) {
+			frameCount--;
+		}
+	}
+}
@@ -0,0 +1,59 @@
+package org.requirementsascode;
+
+import java.util.Objects;
+
+/**
+ * Two steps that might both react to a message of a certain class after the
+ * same latest step, as far as a static analysis of the model can tell.
+ *
+ * <p>
+ * If both steps can actually react at runtime, the runner throws a
+ * {@link org.requirementsascode.exception.MoreThanOneStepCanReact} exception.
+ * Usually, their conditions make sure that doesn't happen.
+ *
+ * @see CompiledModel#getPotentialAmbiguities()
+ * @author b_muth
+ */
+public class PotentialAmbiguity {
+	private final Class<?> messageClass;
+	private final Step firstStep;
+	private final Step secondStep;
+
+	PotentialAmbiguity(Class<?> messageClass, Step firstStep, Step secondStep) {
+		this.messageClass = Objects.requireNonNull(messageClass);
+		this.firstStep = Objects.requireNonNull(firstStep);
+		this.secondStep = Objects.requireNonNull(secondStep);
+	}
+
+	/**
+	 * Returns the class of messages both steps might react to.
+	 *
+	 * @return the message class
+	 */
+	public Class<?> getMessageClass() {
+		return messageClass;
+	}
+
+	/**
+	 * Returns the step that comes first in the model.
+	 *
+	 * @return the first step
+	 */
+	public Step getFirstStep() {
+		return firstStep;
+	}
+
+	/**
+	 * Returns the step that comes second in the model.
+	 *
+	 * @return the second step
+	 */
+	public Step getSecondStep() {
+		return secondStep;
+	}
+
+	@Override
+	public String toString() {
+		return "Steps " + firstStep + " and " + secondStep + " might both react to " + messageClass.getName();
+	}
+}
@@ -0,0 +1,118 @@
+package org.requirementsascode;
+
+import static org.requirementsascode.CompiledModel.NO_STEP;
+
+/**
+ * The state of a single user journey, run by a {@link ModelEngine}.
+ *
+ * <p>
+ * The state is just the id of the latest step run, whether the session is
+ * running, and the recording cursor, i.e. the number of steps the session has
+ * run. Everything else, e.g. the model and the handlers, belongs to the engine.
+ * That keeps the state small, so you can hold a state per user for a large
+ * number of users.
+ *
+ * <p>
+ * To persist a session, store the values returned by the getters. To continue
+ * it later, call {@link #restore(int, boolean, int)} with them. Step ids are
+ * only valid for the same model they have been created with.
+ *
+ * <p>
+ * A state must only be used by one thread at a time.
+ *
+ * @author b_muth
+ */
+public final class SessionState {
+	private int latestStepId;
+	private boolean isRunning;
+	private int recordingCursor;
+
+	SessionState() {
+		this(NO_STEP, true, 0);
+	}
+
+	private SessionState(int latestStepId, boolean isRunning, int recordingCursor) {
+		this.latestStepId = latestStepId;
+		this.isRunning = isRunning;
+		this.recordingCursor = recordingCursor;
+	}
+
+	/**
+	 * Restores a session state from persisted values.
+	 *
+	 * @param latestStepId    the id of the latest step run, or -1 if no step has
+	 *                        been run
+	 * @param isRunning       whether the session is running
+	 * @param recordingCursor the number of steps the session has run
+	 * @return the restored state
+	 * @throws IllegalArgumentException if the step id is less than -1, or the
+	 *                                  recording cursor is negative
+	 */
+	public static SessionState restore(int latestStepId, boolean isRunning, int recordingCursor) {
+		if (latestStepId < NO_STEP) {
+			throw new IllegalArgumentException("Latest step id must be at least " + NO_STEP + ", but was " + latestStepId);
+		}
+		if (recordingCursor < 0) {
+			throw new IllegalArgumentException("Recording cursor must not be negative, but was " + recordingCursor);
+		}
+		SessionState sessionState = new SessionState(latestStepId, isRunning, recordingCursor);
+		return sessionState;
+	}
+
+	/**
+	 * Resets this state to the state of a new session.
+	 */
+	void reset() {
+		this.latestStepId = NO_STEP;
+		this.isRunning = true;
+		this.recordingCursor = 0;
+	}
+
+	/**
+	 * Returns the id of the latest step run in the compiled model, see
+	 * {@link CompiledModel#getStep(int)}.
+	 *
+	 * @return the step id, or -1 if no step has been run
+	 */
+	public int getLatestStepId() {
+		return latestStepId;
+	}
+
+	void setLatestStepId(int latestStepId) {
+		this.latestStepId = latestStepId;
+	}
+
+	/**
+	 * Returns whether the session is running, i.e. reacts to messages.
+	 *
+	 * @return true if running, false if stopped
+	 */
+	public boolean isRunning() {
+		return isRunning;
+	}
+
+	void setRunning(boolean isRunning) {
+		this.isRunning = isRunning;
+	}
+
+	/**
+	 * Returns the number of steps the session has run. When you record the steps
+	 * of a session elsewhere, e.g. in a message handler, this is the position of
+	 * the session in the recording.
+	 *
+	 * @return the recording cursor
+	 */
+	public int getRecordingCursor() {
+		return recordingCursor;
+	}
+
+	void setRecordingCursor(int recordingCursor) {
+		this.recordingCursor = recordingCursor;
+	}
+
+	@Override
+	public String toString() {
+		return "SessionState [latestStepId=" + latestStepId + ", isRunning=" + isRunning + ", recordingCursor="
+			+ recordingCursor + "]";
+	}
+}
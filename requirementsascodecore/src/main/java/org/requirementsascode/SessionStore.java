@@ -0,0 +1,359 @@
+package org.requirementsascode;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * A table of session states, keyed by session id, that is stored outside of
+ * the Java heap. Each session takes 16 bytes, no matter how long it has been
+ * idle, and creates no garbage. Use it together with a {@link ModelEngine}, see
+ * {@link ModelEngine#reactTo(SessionStore, long, Object)}.
+ *
+ * <p>
+ * The table is either allocated as a direct buffer, or mapped to a file. A
+ * mapped store survives a restart of the process: reopen it with the same file
+ * and capacity. Since step ids are stored, the model must be the same, too.
+ *
+ * <p>
+ * The table is an open addressing hash table with linear probing, split into
+ * segments. Each segment has a lock, so threads that access sessions in
+ * different segments don't wait for each other. Messages for the same session
+ * must still be handled one at a time, as for a {@link SessionState}.
+ *
+ * @author b_muth
+ */
+public final class SessionStore {
+	private static final int MAGIC = 0x52414353;
+	private static final int VERSION = 1;
+	private static final int HEADER_SIZE = 16;
+	private static final int SLOT_SIZE = 16;
+	private static final int STEP_OFFSET = 8;
+	private static final int CURSOR_OFFSET = 12;
+	private static final int EMPTY = 0;
+	private static final int MAX_NUMBER_OF_SLOTS = 1 << 26;
+	private static final int MAX_NUMBER_OF_SEGMENTS = 64;
+	private static final int MIN_SLOTS_PER_SEGMENT = 1024;
+
+	private final ByteBuffer buffer;
+	private final Segment[] segments;
+	private final int segmentShift;
+
+	private SessionStore(ByteBuffer buffer, int numberOfSegments, int slotsPerSegment) {
+		this.buffer = buffer;
+		this.segments = new Segment[numberOfSegments];
+		this.segmentShift = 64 - Integer.numberOfTrailingZeros(numberOfSegments);
+
+		int segmentSize = slotsPerSegment * SLOT_SIZE;
+		for (int i = 0; i < numberOfSegments; i++) {
+			ByteBuffer slots = buffer.duplicate();
+			slots.position(HEADER_SIZE + i * segmentSize);
+			slots.limit(HEADER_SIZE + (i + 1) * segmentSize);
+			segments[i] = new Segment(slots.slice(), slotsPerSegment);
+		}
+	}
+
+	/**
+	 * Creates a store in a direct buffer, i.e. outside of the Java heap.
+	 *
+	 * @param capacity the maximum number of sessions
+	 * @return the store
+	 * @throws IllegalArgumentException if the capacity is less than 1, or too big
+	 *                                  for a single buffer
+	 */
+	public static SessionStore allocateDirect(int capacity) {
+		int numberOfSlots = numberOfSlotsFor(capacity);
+		int numberOfSegments = numberOfSegmentsFor(numberOfSlots);
+		ByteBuffer buffer = ByteBuffer.allocateDirect(HEADER_SIZE + numberOfSlots * SLOT_SIZE);
+		writeHeader(buffer, numberOfSegments, numberOfSlots / numberOfSegments);
+
+		SessionStore sessionStore = new SessionStore(buffer, numberOfSegments, numberOfSlots / numberOfSegments);
+		return sessionStore;
+	}
+
+	/**
+	 * Creates a store that is mapped to the specified file, or opens the store if
+	 * the file already exists. Call {@link #force()} to make sure the changes are
+	 * written to the file.
+	 *
+	 * @param file     the file
+	 * @param capacity the maximum number of sessions, the same as when the file has
+	 *                 been created
+	 * @return the store
+	 * @throws IOException              if the file can't be mapped
+	 * @throws IllegalArgumentException if the capacity is less than 1, or too
+	 *                                  big, or if the file isn't a store with the
+	 *                                  specified capacity
+	 */
+	public static SessionStore map(Path file, int capacity) throws IOException {
+		Objects.requireNonNull(file);
+		int numberOfSlots = numberOfSlotsFor(capacity);
+		int numberOfSegments = numberOfSegmentsFor(numberOfSlots);
+		int slotsPerSegment = numberOfSlots / numberOfSegments;
+		long size = HEADER_SIZE + (long) numberOfSlots * SLOT_SIZE;
+
+		MappedByteBuffer buffer;
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+			StandardOpenOption.WRITE)) {
+			boolean isNewFile = channel.size() == 0;
+			if (!isNewFile && channel.size() != size) {
+				throw new IllegalArgumentException("File " + file + " is not a session store with capacity " + capacity);
+			}
+			buffer = channel.map(MapMode.READ_WRITE, 0, size);
+			if (isNewFile) {
+				writeHeader(buffer, numberOfSegments, slotsPerSegment);
+			} else if (!hasHeader(buffer, numberOfSegments, slotsPerSegment)) {
+				throw new IllegalArgumentException("File " + file + " is not a session store with capacity " + capacity);
+			}
+		}
+
+		SessionStore sessionStore = new SessionStore(buffer, numberOfSegments, slotsPerSegment);
+		return sessionStore;
+	}
+
+	private static int numberOfSlotsFor(int capacity) {
+		if (capacity < 1) {
+			throw new IllegalArgumentException("Capacity must be at least 1, but was " + capacity);
+		}
+		// Keep the load factor at or below 0.75, so that probe sequences stay short
+		long minNumberOfSlots = Math.max(MIN_SLOTS_PER_SEGMENT, (capacity * 4L + 2) / 3 + 1);
+		if (minNumberOfSlots > MAX_NUMBER_OF_SLOTS) {
+			throw new IllegalArgumentException("Capacity is too big for a single store: " + capacity);
+		}
+		int numberOfSlots = Integer.highestOneBit((int) minNumberOfSlots - 1) << 1;
+		return numberOfSlots;
+	}
+
+	private static int numberOfSegmentsFor(int numberOfSlots) {
+		int numberOfSegments = Math.min(MAX_NUMBER_OF_SEGMENTS, numberOfSlots / MIN_SLOTS_PER_SEGMENT);
+		return numberOfSegments;
+	}
+
+	private static void writeHeader(ByteBuffer buffer, int numberOfSegments, int slotsPerSegment) {
+		buffer.putInt(0, MAGIC);
+		buffer.putInt(4, VERSION);
+		buffer.putInt(8, numberOfSegments);
+		buffer.putInt(12, slotsPerSegment);
+	}
+
+	private static boolean hasHeader(ByteBuffer buffer, int numberOfSegments, int slotsPerSegment) {
+		boolean hasHeader = buffer.getInt(0) == MAGIC && buffer.getInt(4) == VERSION
+			&& buffer.getInt(8) == numberOfSegments && buffer.getInt(12) == slotsPerSegment;
+		return hasHeader;
+	}
+
+	/**
+	 * Returns a copy of the state of the specified session.
+	 *
+	 * @param sessionId the id of the session
+	 * @return the state, or an empty optional if the store doesn't contain the
+	 *         session
+	 */
+	public Optional<SessionState> get(long sessionId) {
+		SessionState sessionState = new SessionState();
+		boolean isLoaded = load(sessionId, sessionState);
+		return isLoaded ? Optional.of(sessionState) : Optional.empty();
+	}
+
+	/**
+	 * Stores the state of the specified session, replacing the state stored
+	 * before.
+	 *
+	 * @param sessionId    the id of the session
+	 * @param sessionState the state
+	 * @throws IllegalStateException if the session is new, and the store is full
+	 */
+	public void put(long sessionId, SessionState sessionState) {
+		Objects.requireNonNull(sessionState);
+		long hash = hash(sessionId);
+		Segment segment = segmentOf(hash);
+		synchronized (segment) {
+			segment.put(sessionId, hash, sessionState);
+		}
+	}
+
+	/**
+	 * Removes the specified session.
+	 *
+	 * @param sessionId the id of the session
+	 * @return true if the store contained the session, false otherwise
+	 */
+	public boolean remove(long sessionId) {
+		long hash = hash(sessionId);
+		Segment segment = segmentOf(hash);
+		synchronized (segment) {
+			return segment.remove(sessionId, hash);
+		}
+	}
+
+	/**
+	 * Returns the number of sessions in the store.
+	 *
+	 * @return the number of sessions
+	 */
+	public int size() {
+		int size = 0;
+		for (Segment segment : segments) {
+			synchronized (segment) {
+				size += segment.size;
+			}
+		}
+		return size;
+	}
+
+	/**
+	 * Writes the changes to the file, if the store is mapped to a file.
+	 * Otherwise, does nothing.
+	 */
+	public void force() {
+		if (buffer instanceof MappedByteBuffer) {
+			((MappedByteBuffer) buffer).force();
+		}
+	}
+
+	/**
+	 * Loads the state of the specified session into the specified state object,
+	 * without creating garbage.
+	 *
+	 * @return true if the store contains the session, false otherwise
+	 */
+	boolean load(long sessionId, SessionState sessionState) {
+		long hash = hash(sessionId);
+		Segment segment = segmentOf(hash);
+		synchronized (segment) {
+			return segment.load(sessionId, hash, sessionState);
+		}
+	}
+
+	private static long hash(long sessionId) {
+		long hash = sessionId * 0x9E3779B97F4A7C15L;
+		return hash ^ (hash >>> 29);
+	}
+
+	private Segment segmentOf(long hash) {
+		// The upper bits select the segment, the lower bits the slot in it
+		int segmentIndex = segmentShift == 64 ? 0 : (int) (hash >>> segmentShift);
+		return segments[segmentIndex];
+	}
+
+	/**
+	 * A part of the table, with a lock of its own.
+	 *
+	 * <p>
+	 * Each slot contains the session id (8 bytes), the step field (4 bytes) and
+	 * the recording cursor (4 bytes). The step field is the latest step id plus 2,
+	 * so that it is positive, negated if the session has been stopped. A step
+	 * field of 0 marks an empty slot.
+	 */
+	private static final class Segment {
+		private final ByteBuffer slots;
+		private final int slotMask;
+		private final int maxSize;
+		private int size;
+
+		private Segment(ByteBuffer slots, int numberOfSlots) {
+			this.slots = slots;
+			this.slotMask = numberOfSlots - 1;
+			// The store is sized for a load factor of 0.75. Allow a segment to fill up
+			// more, as the sessions aren't spread perfectly evenly over the segments.
+			this.maxSize = numberOfSlots - numberOfSlots / 8;
+			this.size = countOccupiedSlots(numberOfSlots);
+		}
+
+		private int countOccupiedSlots(int numberOfSlots) {
+			int occupiedSlots = 0;
+			for (int index = 0; index < numberOfSlots; index++) {
+				if (stepFieldAt(index) != EMPTY) {
+					occupiedSlots++;
+				}
+			}
+			return occupiedSlots;
+		}
+
+		private boolean load(long sessionId, long hash, SessionState sessionState) {
+			int index = indexOf(sessionId, hash);
+			if (index < 0) {
+				return false;
+			}
+			int stepField = stepFieldAt(index);
+			sessionState.setLatestStepId(Math.abs(stepField) - 2);
+			sessionState.setRunning(stepField > 0);
+			sessionState.setRecordingCursor(slots.getInt(index * SLOT_SIZE + CURSOR_OFFSET));
+			return true;
+		}
+
+		private void put(long sessionId, long hash, SessionState sessionState) {
+			int index = indexOf(sessionId, hash);
+			if (index < 0) {
+				if (size == maxSize) {
+					throw new IllegalStateException("Session store is full, can't add session " + sessionId);
+				}
+				index = -(index + 1);
+				slots.putLong(index * SLOT_SIZE, sessionId);
+				size++;
+			}
+			int stepField = sessionState.getLatestStepId() + 2;
+			slots.putInt(index * SLOT_SIZE + STEP_OFFSET, sessionState.isRunning() ? stepField : -stepField);
+			slots.putInt(index * SLOT_SIZE + CURSOR_OFFSET, sessionState.getRecordingCursor());
+		}
+
+		private boolean remove(long sessionId, long hash) {
+			int index = indexOf(sessionId, hash);
+			if (index < 0) {
+				return false;
+			}
+
+			// Backward shift deletion: move later entries of the probe sequence into the
+			// hole, so that lookups don't need tombstones
+			int hole = index;
+			int next = (hole + 1) & slotMask;
+			while (stepFieldAt(next) != EMPTY) {
+				int home = (int) hash(slots.getLong(next * SLOT_SIZE)) & slotMask;
+				if (((next - home) & slotMask) >= ((next - hole) & slotMask)) {
+					copySlot(next, hole);
+					hole = next;
+				}
+				next = (next + 1) & slotMask;
+			}
+			slots.putLong(hole * SLOT_SIZE, 0);
+			slots.putInt(hole * SLOT_SIZE + STEP_OFFSET, EMPTY);
+			slots.putInt(hole * SLOT_SIZE + CURSOR_OFFSET, 0);
+			size--;
+			return true;
+		}
+
+		/**
+		 * Returns the index of the slot of the specified session, or if the segment
+		 * doesn't contain it, -(index + 1) of the empty slot where it would be
+		 * inserted.
+		 */
+		private int indexOf(long sessionId, long hash) {
+			int index = (int) hash & slotMask;
+			while (true) {
+				if (stepFieldAt(index) == EMPTY) {
+					return -(index + 1);
+				}
+				if (slots.getLong(index * SLOT_SIZE) == sessionId) {
+					return index;
+				}
+				index = (index + 1) & slotMask;
+			}
+		}
+
+		private int stepFieldAt(int index) {
+			return slots.getInt(index * SLOT_SIZE + STEP_OFFSET);
+		}
+
+		private void copySlot(int fromIndex, int toIndex) {
+			slots.putLong(toIndex * SLOT_SIZE, slots.getLong(fromIndex * SLOT_SIZE));
+			slots.putInt(toIndex * SLOT_SIZE + STEP_OFFSET, stepFieldAt(fromIndex));
+			slots.putInt(toIndex * SLOT_SIZE + CURSOR_OFFSET, slots.getInt(fromIndex * SLOT_SIZE + CURSOR_OFFSET));
+		}
+	}
+}
@@ -54,6 +54,7 @@ public abstract class Step extends ModelElement{
 	}
 
 	public void setActors(AbstractActor[] actors) {
+		getModel().checkNotFrozen();
 		connectActorsToThisStep(this, actors);
 	}
 	
@@ -62,6 +63,7 @@ public abstract class Step extends ModelElement{
 		for (AbstractActor actor : actors) {
 			actor.connectToStep(useCaseStep);
 		}
+		getModel().clearStepCaches();
 	}
 
 	public Class<?> getMessageClass() {
@@ -69,7 +71,9 @@ public abstract class Step extends ModelElement{
 	}
 
 	public void setMessageClass(Class<?> eventClass) {
+		getModel().checkNotFrozen();
 		this.messageClass = eventClass;
+		getModel().clearStepCaches();
 	}
 
 	public SystemReaction<?> getSystemReaction() {
@@ -77,18 +81,22 @@ public abstract class Step extends ModelElement{
 	}
 	
 	public void setSystemReaction(Runnable systemReaction) {
+		getModel().checkNotFrozen();
 		this.systemReaction = new SystemReaction<>(systemReaction);
 	}
 	
 	public <T> void setSystemReaction(Consumer<? super T> systemReaction) {
+		getModel().checkNotFrozen();
 		this.systemReaction = new SystemReaction<>(systemReaction);
 	}
 	
 	public <T> void setSystemReaction(Function<? super T, ?> systemReaction) {
+		getModel().checkNotFrozen();
 		this.systemReaction = new SystemReaction<>(systemReaction);
 	}
 
 	public <T> void setSystemReaction(Supplier<? super T> systemReaction) {
+		getModel().checkNotFrozen();
 		this.systemReaction = new SystemReaction<>(systemReaction);
 	}
 
@@ -100,7 +108,12 @@ public abstract class Step extends ModelElement{
 		return Optional.ofNullable(publishTo);
 	}
 
+	AbstractActor getPublishToActor() {
+		return publishTo;
+	}
+
 	public void setPublishTo(AbstractActor recipient) {
+		getModel().checkNotFrozen();
 		this.publishTo = recipient;
 	}
 }
@@ -47,6 +47,10 @@ public class StepToBeRun{
 	  return Optional.ofNullable(messageToBePublished);
 	}
 
+	Object getReturnedMessage() {
+		return messageToBePublished;
+	}
+
 	/**
 	 * Returns the name of the step whose system reaction is performed when
 	 * {@link #run()} is called.
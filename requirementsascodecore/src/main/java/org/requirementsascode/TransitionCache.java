@@ -0,0 +1,49 @@
+package org.requirementsascode;
+
+/**
+ * Remembers the transition table a runner has used last, in front of the
+ * compiled model's map from message class to transition table.
+ *
+ * <p>
+ * Runners often get several messages of the same class in a row. For those,
+ * the cache compares the class of the message by identity with the class of
+ * the previous message, and returns the remembered transition table without a
+ * hash lookup. Otherwise, the transition table is looked up in the compiled
+ * model and replaces the remembered one.
+ *
+ * <p>
+ * A cache belongs to a single runner, and is not thread safe.
+ *
+ * @author b_muth
+ */
+class TransitionCache {
+	private Class<?> messageClass;
+	private Transitions transitions;
+	private CompiledModel compiledModel;
+
+	/**
+	 * Returns the transitions for the specified message class.
+	 *
+	 * @param compiledModel the compiled model the runner executes
+	 * @param messageClass  the class of the message
+	 * @return the transitions
+	 */
+	Transitions getTransitions(CompiledModel compiledModel, Class<?> messageClass) {
+		if (messageClass != this.messageClass || compiledModel != this.compiledModel) {
+			this.transitions = compiledModel.getTransitions(messageClass);
+			this.messageClass = messageClass;
+			this.compiledModel = compiledModel;
+		}
+		return transitions;
+	}
+
+	/**
+	 * Returns whether the transitions for the specified message class are cached.
+	 *
+	 * @param messageClass the class of the message
+	 * @return true if cached, false otherwise
+	 */
+	boolean isCached(Class<?> messageClass) {
+		return messageClass == this.messageClass;
+	}
+}
@@ -0,0 +1,30 @@
+package org.requirementsascode;
+
+/**
+ * The transitions of a message class in a {@link CompiledModel}. For each
+ * latest step, they contain the ids of the steps that might react to a message
+ * of the class, and whether at most one of these steps can react.
+ *
+ * @author b_muth
+ */
+class Transitions {
+	private final int[][] stepIds;
+	private final boolean[] isUnambiguous;
+
+	Transitions(int[][] stepIds, boolean[] isUnambiguous) {
+		this.stepIds = stepIds;
+		this.isUnambiguous = isUnambiguous;
+	}
+
+	int[] getStepIds(int column) {
+		return stepIds[column];
+	}
+
+	boolean isUnambiguous(int column) {
+		return isUnambiguous[column];
+	}
+
+	int getNumberOfColumns() {
+		return stepIds.length;
+	}
+}
@@ -94,6 +94,7 @@ public class UseCase extends ModelElement{
 	 *                               exists in the use case
 	 */
 	public Flow newFlow(String flowName) {
+		getModel().checkNotFrozen();
 		Flow flow = new Flow(flowName, this);
 		saveModelElement(flow, nameToFlowMap);
 		return flow;
@@ -112,9 +113,11 @@ public class UseCase extends ModelElement{
 	 */
 	public InterruptingFlowStep newInterruptingFlowStep(String stepName, Flow flow, FlowPosition flowPosition,
 			Condition condition) {
+		getModel().checkNotFrozen();
 		InterruptingFlowStep step = new InterruptingFlowStep(stepName, flow, flowPosition, condition);
 
 		saveModelElement(step, nameToStepMap);
+		getModel().clearStepCaches();
 
 		return step;
 	}
@@ -137,8 +140,10 @@ public class UseCase extends ModelElement{
 	 * @return the newly created step
 	 */
 	public InterruptableFlowStep newInterruptableFlowStep(String stepName, Flow flow) {
+		getModel().checkNotFrozen();
 		InterruptableFlowStep step = new InterruptableFlowStep(stepName, flow);
 		saveModelElement(step, nameToStepMap);
+		getModel().clearStepCaches();
 
 		return step;
 	}
@@ -152,8 +157,10 @@ public class UseCase extends ModelElement{
 	 * @return the newly created step
 	 */
 	public FlowlessStep newFlowlessStep(String stepName, Condition optionalCondition) {
+		getModel().checkNotFrozen();
 		FlowlessStep step = new FlowlessStep(stepName, this, optionalCondition);
 		saveModelElement(step, nameToStepMap);
+		getModel().clearStepCaches();
 
 		return step;
 	}
@@ -3,7 +3,7 @@ package org.requirementsascode.builder;
 import static org.requirementsascode.builder.UseCasePart.useCasePart;
 
 import org.requirementsascode.Condition;
-import org.requirementsascode.Flow;
+import org.requirementsascode.FlowStep;
 import org.requirementsascode.Model;
 import org.requirementsascode.Step;
 import org.requirementsascode.SystemReaction;
@@ -96,22 +96,36 @@ public class ModelBuilder {
 	}
 
 	/**
-	 * Returns the model built so far.
+	 * Returns the model built so far, and freezes it. After that, the model
+	 * can't be changed anymore, and can be shared by model runners on
+	 * different threads.
+	 *
+	 * <p>
+	 * Note that this changes how a builder can be used after building. Adding to
+	 * the builder, or to any part of the model, throws a
+	 * {@link org.requirementsascode.exception.ModelIsFrozen} exception. Calling
+	 * this method again returns the same, frozen model. To change a model, build
+	 * a new one with {@link Model#builder()}.
 	 *
 	 * @return the model
+	 * @see Model#freeze()
 	 */
 	public Model build() {
-	  // This is done lazily, only when building, to enable forward references (#92)
-	  resolveFlowPositions();
-	  resolveContinuesAfterAndContinuousAt();
-	  resolveContinuesWithoutAlternativeAt();
+	  if(!model.isFrozen()) {
+	    // This is done lazily, only when building, to enable forward references (#92)
+	    resolveFlowPositions();
+	    resolveContinuesAfterAndContinuousAt();
+	    resolveContinuesWithoutAlternativeAt();
+	    model.freeze();
+	  }
 		return getModel();
 	}
 
   private void resolveFlowPositions() {
     model.getUseCases().stream()
-	    .flatMap(uc -> uc.getFlows().stream())
-	    .map(Flow::getFlowPosition)
+	    .flatMap(uc -> uc.getSteps().stream())
+	    .filter(step -> step instanceof FlowStep)
+	    .map(step -> ((FlowStep)step).getFlowPosition())
 	    .filter(fp -> fp != null)
 	    .forEach(FlowPosition::resolveStep);
   }
@@ -124,7 +138,7 @@ public class ModelBuilder {
       .map(SystemReaction::getModelObject)
       .filter(obj -> obj instanceof AbstractContinuesAfter)
       .map(obj -> (AbstractContinuesAfter)obj)
-      .forEach(AbstractContinuesAfter::resolvePreviousStep);
+      .forEach(AbstractContinuesAfter::resolve);
   }
   
   private void resolveContinuesWithoutAlternativeAt() {
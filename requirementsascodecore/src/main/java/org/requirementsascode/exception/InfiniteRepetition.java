@@ -3,8 +3,8 @@ package org.requirementsascode.exception;
 import org.requirementsascode.Step;
 
 /**
- * Exception that is thrown when internally, a StackOverflowException occurs.
- * The likely cause is that a condition is always true.
+ * Exception that is thrown when a model runner runs more steps for a single
+ * message than allowed. The likely cause is that a condition is always true.
  * 
  * @author b_muth
  *
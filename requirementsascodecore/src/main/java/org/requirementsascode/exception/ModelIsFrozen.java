@@ -0,0 +1,20 @@
+package org.requirementsascode.exception;
+
+/**
+ * Exception that is thrown when somebody tries to change a model after it has
+ * been built.
+ * 
+ * @author b_muth
+ *
+ */
+public class ModelIsFrozen extends RuntimeException{
+	private static final long serialVersionUID = 2950384623918307582L;
+
+	public ModelIsFrozen() {
+		super(exceptionMessage());
+	}
+
+	private static String exceptionMessage() {
+		return "The model has been built and can't be changed anymore. Create a new model with Model.builder() instead.";
+	}
+}
@@ -1,6 +1,7 @@
 package org.requirementsascode.flowposition;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.function.Predicate;
 
@@ -23,9 +24,20 @@ public abstract class FlowPosition implements Predicate<ModelRunner>{
 	  this.mergeSteps = new ArrayList<>();
   }
 
+ /**
+  * Tests whether the runner is at the right position.
+  * 
+  * <p>
+  * The step is resolved lazily here only if the model hasn't been built yet.
+  * When the model is built, all flow positions have been resolved, so testing
+  * doesn't change the flow position.
+  * 
+  * @param modelRunner the runner to test
+  * @return true if the runner is at the right position, false otherwise
+  */
   @Override
 	public final boolean test(ModelRunner modelRunner) {
-    if(step == null) {
+    if(step == null && stepName != null) {
       resolveStep();
     }
     
@@ -34,21 +46,27 @@ public abstract class FlowPosition implements Predicate<ModelRunner>{
 		return isRunnerAtRightPositionForStepOrAfterAnyMergedStep;
 	}
 
+  /**
+   * Resolves the step this flow position refers to by name, and stores it.
+   * 
+   * @return the resolved step, or null if the flow position doesn't refer to a step
+   */
   public FlowStep resolveStep() {
-    FlowStep flowStep = null;
-    if(useCase != null && stepName != null) {
+    if(step == null && useCase != null && stepName != null) {
       this.step = (FlowStep) useCase.findStep(stepName);
     }
-    return flowStep;
+    return step;
   }
 
 	private boolean afterAnyMergedStep(ModelRunner modelRunner) {
 		boolean isAfterStep = false;
-		for (FlowStep mergeStep : mergeSteps) {
-			After isAfterMergeStep = new After(mergeStep.getName(), mergeStep.getUseCase());
-      if(isAfterMergeStep.test(modelRunner)) {
-				isAfterStep = true;
-				break;
+		if(!mergeSteps.isEmpty()) {
+			Step latestStepRun = modelRunner.getLatestStep().orElse(null);
+			for (int i = 0; i < mergeSteps.size(); i++) {
+				if (mergeSteps.get(i).equals(latestStepRun)) {
+					isAfterStep = true;
+					break;
+				}
 			}
 		}
 		return isAfterStep;
@@ -58,6 +76,16 @@ public abstract class FlowPosition implements Predicate<ModelRunner>{
 		return step;
 	}
 
+	/**
+	 * Returns the steps added by {@link #orAfter(FlowStep)}. The runner is at the
+	 * right position as well, if one of these steps has been run last.
+	 * 
+	 * @return the merge steps
+	 */
+	public List<FlowStep> getMergeSteps() {
+		return Collections.unmodifiableList(mergeSteps);
+	}
+
 	public FlowPosition orAfter(FlowStep mergeStep) {
 		mergeSteps.add(mergeStep);
 		return this;
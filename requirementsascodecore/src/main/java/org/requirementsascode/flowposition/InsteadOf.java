@@ -1,7 +1,10 @@
 package org.requirementsascode.flowposition;
 
+import java.util.Objects;
+
 import org.requirementsascode.FlowStep;
 import org.requirementsascode.ModelRunner;
+import org.requirementsascode.Step;
 import org.requirementsascode.UseCase;
 
 public class InsteadOf extends FlowPosition{
@@ -12,7 +15,8 @@ public class InsteadOf extends FlowPosition{
   @Override
 	protected boolean isRunnerAtRightPositionFor(FlowStep step, ModelRunner modelRunner) {
 		FlowStep previousStep = step.getPreviousStepInFlow().orElse(null);
-		After afterPreviousStep = After.flowStep(previousStep);
-		return afterPreviousStep.test(modelRunner);
+		Step latestStepRun = modelRunner.getLatestStep().orElse(null);
+		boolean previousStepWasRunLast = Objects.equals(previousStep, latestStepRun);
+		return previousStepWasRunLast;
 	}
 }
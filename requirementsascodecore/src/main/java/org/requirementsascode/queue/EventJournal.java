@@ -0,0 +1,331 @@
+package org.requirementsascode.queue;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+
+/**
+ * A durable, append-only sequence of events, stored in memory-mapped files
+ * ("segments") of a directory. Each event gets a sequence number, starting
+ * with 0.
+ * 
+ * <p>
+ * The consumer of the events commits the sequence number of the next event it
+ * will consume. When the journal is opened again, e.g. after a crash, the
+ * events from that sequence number on are replayed with
+ * {@link #forEachUncommitted(Consumer)}. So each event is consumed at least
+ * once. Segments that only contain committed events are deleted.
+ * 
+ * <p>
+ * When appended events are forced to disk is defined by a {@link SyncPolicy}.
+ * See {@link EventQueue#journaling(Consumer, EventJournal)} for a queue that
+ * uses a journal.
+ * 
+ * <p>
+ * A journal is thread safe. Only one journal object at a time must use a
+ * directory.
+ * 
+ * @author b_muth
+ *
+ */
+public class EventJournal implements Closeable {
+	private static final String SEGMENT_FILE_SUFFIX = ".segment";
+	private static final String COMMITTED_FILE_NAME = "committed";
+	private static final int MIN_SEGMENT_SIZE = 1024;
+
+	private final EventSerializer serializer;
+	private final int segmentSize;
+	private final SyncPolicy syncPolicy;
+	private final Path directory;
+	private final List<JournalSegment> segments;
+	private final MappedByteBuffer committedBuffer;
+	private final Object syncLock;
+	private long committedSequence;
+	private volatile long syncedSequence;
+	private volatile long lastSyncNanos;
+	private boolean isClosed;
+
+	private EventJournal(Path directory, EventSerializer serializer, int segmentSize, SyncPolicy syncPolicy,
+		List<JournalSegment> segments, MappedByteBuffer committedBuffer, long committedSequence) {
+		this.directory = directory;
+		this.serializer = serializer;
+		this.segmentSize = segmentSize;
+		this.syncPolicy = syncPolicy;
+		this.segments = segments;
+		this.committedBuffer = committedBuffer;
+		this.syncLock = new Object();
+		this.committedSequence = committedSequence;
+		this.syncedSequence = getNextSequence();
+		this.lastSyncNanos = System.nanoTime();
+	}
+
+	/**
+	 * Opens the journal in the specified directory, or creates a new one if the
+	 * directory doesn't contain a journal.
+	 * 
+	 * @param directory   the directory of the segment files, created if it
+	 *                    doesn't exist
+	 * @param serializer  converts events to bytes and back
+	 * @param segmentSize the size of a segment file in bytes, at least 1024. The
+	 *                    serialized events must fit into a segment.
+	 * @param syncPolicy  defines when appended events are forced to disk
+	 * @return the journal
+	 * @throws IOException              if the files can't be opened or created
+	 * @throws IllegalArgumentException if the segment size is too small, or the
+	 *                                  directory contains invalid segment files
+	 */
+	public static EventJournal open(Path directory, EventSerializer serializer, int segmentSize,
+		SyncPolicy syncPolicy) throws IOException {
+		Objects.requireNonNull(directory);
+		Objects.requireNonNull(serializer);
+		Objects.requireNonNull(syncPolicy);
+		if (segmentSize < MIN_SEGMENT_SIZE) {
+			throw new IllegalArgumentException("Segment size must be at least " + MIN_SEGMENT_SIZE + ", but was "
+				+ segmentSize);
+		}
+		Files.createDirectories(directory);
+
+		MappedByteBuffer committedBuffer;
+		try (FileChannel channel = FileChannel.open(directory.resolve(COMMITTED_FILE_NAME), StandardOpenOption.CREATE,
+			StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+			committedBuffer = channel.map(MapMode.READ_WRITE, 0, Long.BYTES);
+		}
+
+		List<JournalSegment> segments = openSegments(directory);
+		long committedSequence = committedBuffer.getLong(0);
+		if (segments.isEmpty()) {
+			segments.add(JournalSegment.create(segmentPath(directory, committedSequence), committedSequence,
+				segmentSize));
+		}
+		long firstSequence = segments.get(0).getBaseSequence();
+		long nextSequence = segments.get(segments.size() - 1).getNextSequence();
+		committedSequence = Math.min(Math.max(committedSequence, firstSequence), nextSequence);
+
+		EventJournal journal = new EventJournal(directory, serializer, segmentSize, syncPolicy, segments,
+			committedBuffer, committedSequence);
+		journal.deleteCommittedSegments();
+		return journal;
+	}
+
+	private static List<JournalSegment> openSegments(Path directory) throws IOException {
+		TreeMap<Long, Path> segmentPaths = new TreeMap<>();
+		try (DirectoryStream<Path> paths = Files.newDirectoryStream(directory, "*" + SEGMENT_FILE_SUFFIX)) {
+			for (Path path : paths) {
+				String fileName = path.getFileName().toString();
+				String baseSequence = fileName.substring(0, fileName.length() - SEGMENT_FILE_SUFFIX.length());
+				try {
+					segmentPaths.put(Long.parseLong(baseSequence), path);
+				} catch (NumberFormatException e) {
+					throw new IllegalArgumentException("Not a journal segment: " + path);
+				}
+			}
+		}
+
+		List<JournalSegment> segments = new ArrayList<>();
+		for (Long baseSequence : segmentPaths.keySet()) {
+			segments.add(JournalSegment.open(segmentPaths.get(baseSequence), baseSequence));
+		}
+		return segments;
+	}
+
+	private static Path segmentPath(Path directory, long baseSequence) {
+		Path segmentPath = directory.resolve(String.format("%020d", baseSequence) + SEGMENT_FILE_SUFFIX);
+		return segmentPath;
+	}
+
+	/**
+	 * Appends the specified event, and forces it to disk if the sync policy says
+	 * so.
+	 * 
+	 * @param event the event
+	 * @return the sequence number of the event
+	 * @throws IllegalArgumentException if the serialized event doesn't fit into a
+	 *                                  segment
+	 * @throws IllegalStateException    if the journal has been closed
+	 * @throws UncheckedIOException     if a new segment can't be created
+	 */
+	public long append(Object event) {
+		long sequence = write(event);
+		syncAccordingToPolicy(sequence);
+		return sequence;
+	}
+
+	/**
+	 * Appends the specified event, without forcing it to disk. Call
+	 * {@link #syncAccordingToPolicy(long)} afterwards, without holding the lock
+	 * of this journal, so that other threads can append while syncing.
+	 */
+	synchronized long write(Object event) {
+		checkNotClosed();
+		byte[] bytes = serializer.serialize(event);
+		if (bytes.length == 0 || bytes.length > JournalSegment.maxRecordLength(segmentSize)) {
+			throw new IllegalArgumentException("Serialized event must have between 1 and "
+				+ JournalSegment.maxRecordLength(segmentSize) + " bytes, but had " + bytes.length);
+		}
+
+		JournalSegment segment = lastSegment();
+		if (!segment.hasRoomFor(bytes.length)) {
+			segment = createSegment(segment.getNextSequence());
+		}
+		long sequence = segment.append(bytes);
+		return sequence;
+	}
+
+	private JournalSegment createSegment(long baseSequence) {
+		try {
+			JournalSegment segment = JournalSegment.create(segmentPath(directory, baseSequence), baseSequence,
+				segmentSize);
+			segments.add(segment);
+			return segment;
+		} catch (IOException e) {
+			throw new UncheckedIOException("Could not create journal segment", e);
+		}
+	}
+
+	void syncAccordingToPolicy(long sequence) {
+		long unsyncedEvents = sequence + 1 - syncedSequence;
+		if (unsyncedEvents > 0 && syncPolicy.isSyncDue(unsyncedEvents, System.nanoTime() - lastSyncNanos)) {
+			syncUpTo(sequence);
+		}
+	}
+
+	/**
+	 * Forces all appended events, and the committed sequence number, to disk.
+	 */
+	public void sync() {
+		syncUpTo(getNextSequence() - 1);
+	}
+
+	/**
+	 * Forces the events up to the specified sequence number to disk, unless
+	 * another thread has already done that. While a thread syncs, other threads
+	 * can append. The next thread to sync then forces all of their events at
+	 * once.
+	 */
+	private void syncUpTo(long sequence) {
+		synchronized (syncLock) {
+			if (sequence < syncedSequence) {
+				return;
+			}
+			long nextSequence;
+			List<JournalSegment> unsyncedSegments = new ArrayList<>();
+			synchronized (this) {
+				nextSequence = getNextSequence();
+				for (JournalSegment segment : segments) {
+					if (segment.getNextSequence() > syncedSequence) {
+						unsyncedSegments.add(segment);
+					}
+				}
+			}
+			for (JournalSegment segment : unsyncedSegments) {
+				segment.force();
+			}
+			committedBuffer.force();
+			syncedSequence = nextSequence;
+			lastSyncNanos = System.nanoTime();
+		}
+	}
+
+	/**
+	 * Commits the specified sequence number: all events before it have been
+	 * consumed, and will not be replayed.
+	 * 
+	 * @param nextSequence the sequence number of the next event to consume
+	 * @throws IllegalArgumentException if the sequence number is less than the
+	 *                                  committed one, or greater than the next
+	 *                                  sequence number to append
+	 */
+	public synchronized void commit(long nextSequence) {
+		checkNotClosed();
+		if (nextSequence < committedSequence || nextSequence > getNextSequence()) {
+			throw new IllegalArgumentException("Sequence number must be between " + committedSequence + " and "
+				+ getNextSequence() + ", but was " + nextSequence);
+		}
+		committedSequence = nextSequence;
+		committedBuffer.putLong(0, nextSequence);
+		deleteCommittedSegments();
+	}
+
+	private void deleteCommittedSegments() {
+		while (segments.size() > 1 && segments.get(0).getNextSequence() <= committedSequence) {
+			JournalSegment segment = segments.remove(0);
+			try {
+				Files.deleteIfExists(segment.getPath());
+			} catch (IOException e) {
+				// Some platforms don't delete mapped files. Deleted when opened again.
+			}
+		}
+	}
+
+	/**
+	 * Passes the events that haven't been committed to the specified consumer,
+	 * in the order they have been appended.
+	 * 
+	 * @param eventConsumer the consumer of the events
+	 */
+	public synchronized void forEachUncommitted(Consumer<Object> eventConsumer) {
+		checkNotClosed();
+		for (JournalSegment segment : segments) {
+			if (segment.getNextSequence() > committedSequence) {
+				segment.forEachEvent(committedSequence, serializer, eventConsumer);
+			}
+		}
+	}
+
+	/**
+	 * Returns the sequence number of the next event to consume.
+	 * 
+	 * @return the committed sequence number
+	 */
+	public synchronized long getCommittedSequence() {
+		return committedSequence;
+	}
+
+	/**
+	 * Returns the sequence number the next appended event will get.
+	 * 
+	 * @return the next sequence number
+	 */
+	public synchronized long getNextSequence() {
+		return lastSegment().getNextSequence();
+	}
+
+	private JournalSegment lastSegment() {
+		return segments.get(segments.size() - 1);
+	}
+
+	/**
+	 * Forces all events to disk, and closes the journal. The memory of the
+	 * segments is released when they are garbage collected.
+	 */
+	@Override
+	public void close() {
+		synchronized (this) {
+			if (isClosed) {
+				return;
+			}
+		}
+		sync();
+		synchronized (this) {
+			isClosed = true;
+		}
+	}
+
+	private void checkNotClosed() {
+		if (isClosed) {
+			throw new IllegalStateException("Journal has been closed");
+		}
+	}
+}
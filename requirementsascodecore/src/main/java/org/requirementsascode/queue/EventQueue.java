@@ -1,5 +1,9 @@
 package org.requirementsascode.queue;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
 import java.util.concurrent.BlockingDeque;
 import java.util.concurrent.LinkedBlockingDeque;
 import java.util.function.Consumer;
@@ -10,6 +14,17 @@ import java.util.function.Consumer;
  * 
  * To do that, it internally runs its own event producer thread.
  * 
+ * In batch mode, created with {@link #batching(Consumer, int)}, the producer
+ * thread forwards all available events at once, as a batch.
+ * 
+ * In journaled mode, created with
+ * {@link #journaling(Consumer, EventJournal)}, the queue appends each event
+ * to a durable journal, and replays the events not consumed when it is
+ * created again, e.g. after a crash.
+ * 
+ * To find out whether the queue is saturated, or the consumer is slow,
+ * instrument it with {@link #instrumentWith(EventQueueListener)}.
+ * 
  * @author b_muth
  *
  */
@@ -18,6 +33,13 @@ public class EventQueue {
 	private final EventProducer eventProducer;
 	private final Thread eventProducerThread;
 	private final Consumer<Object> eventConsumer;
+	private final Consumer<List<Object>> batchConsumer;
+	private final List<Object> batch;
+	private final List<Object> unmodifiableBatch;
+	private final int maxBatchSize;
+	private final EventJournal journal;
+	private long committedSequence;
+	private volatile EventQueueListener listener;
 
 	/**
 	 * Create an event queue whose events will be consumed by the specified
@@ -26,26 +48,134 @@ public class EventQueue {
 	 * @param eventConsumer the target of events
 	 */
 	public EventQueue(Consumer<Object> eventConsumer) {
+		this(eventConsumer, null, 1, null);
+	}
+
+	private EventQueue(Consumer<Object> eventConsumer, Consumer<List<Object>> batchConsumer, int maxBatchSize,
+		EventJournal journal) {
 		this.events = new LinkedBlockingDeque<Object>();
 		this.eventProducer = new EventProducer();
 		this.eventProducerThread = new Thread(eventProducer);
 		this.eventConsumer = eventConsumer;
+		this.batchConsumer = batchConsumer;
+		this.batch = new ArrayList<>(maxBatchSize);
+		this.unmodifiableBatch = Collections.unmodifiableList(batch);
+		this.maxBatchSize = maxBatchSize;
+		this.journal = journal;
+		if (journal != null) {
+			this.committedSequence = journal.getCommittedSequence();
+			journal.forEachUncommitted(events::add);
+		}
 		eventProducerThread.start();
 	}
 
+	/**
+	 * Create an event queue in batch mode. Whenever events are available, the
+	 * producer thread takes all of them, up to the specified maximum, and
+	 * forwards them to the specified consumer in a single call. So during bursts,
+	 * the consumer is called less often, and the producer thread wakes up less
+	 * often.
+	 * 
+	 * <p>
+	 * The list passed to the consumer is reused for the next batch. The consumer
+	 * must not modify it, and must not keep a reference to it after returning.
+	 * For example, a model runner can react to each batch:
+	 * <code>EventQueue.batching(modelRunner::reactTo, 64)</code>.
+	 * 
+	 * @param batchConsumer the target of the batches of events
+	 * @param maxBatchSize  the maximum number of events in a batch, at least 1
+	 * @return the event queue
+	 * @throws IllegalArgumentException if the maximum batch size is less than 1
+	 */
+	public static EventQueue batching(Consumer<List<Object>> batchConsumer, int maxBatchSize) {
+		Objects.requireNonNull(batchConsumer);
+		if (maxBatchSize < 1) {
+			throw new IllegalArgumentException("Maximum batch size must be at least 1, but was " + maxBatchSize);
+		}
+		EventQueue eventQueue = new EventQueue(null, batchConsumer, maxBatchSize, null);
+		return eventQueue;
+	}
+
+	/**
+	 * Create an event queue in journaled mode. Each event put in the queue is
+	 * appended to the specified journal as well. After the consumer has returned
+	 * from an event, the queue commits it in the journal.
+	 * 
+	 * <p>
+	 * When the queue is created, it first forwards the events of the journal
+	 * that haven't been committed, e.g. because the process crashed, or the queue
+	 * was stopped before they were consumed. So the consumer gets each event at
+	 * least once, and must be able to deal with events it has already consumed
+	 * before a crash.
+	 * 
+	 * <p>
+	 * The journal must only be used by this queue. Close it after stopping the
+	 * queue.
+	 * 
+	 * @param eventConsumer the target of events
+	 * @param journal       the journal
+	 * @return the event queue
+	 */
+	public static EventQueue journaling(Consumer<Object> eventConsumer, EventJournal journal) {
+		Objects.requireNonNull(eventConsumer);
+		Objects.requireNonNull(journal);
+		EventQueue eventQueue = new EventQueue(eventConsumer, null, 1, journal);
+		return eventQueue;
+	}
+
+	/**
+	 * Instruments this queue with the specified listener, e.g. an
+	 * {@link EventQueueMetrics} object. The listener is notified about each event
+	 * put after this call.
+	 * 
+	 * <p>
+	 * Without a listener, the queue doesn't measure anything. With a listener, it
+	 * measures the time of each event put, taken and consumed, and wraps each
+	 * event in a small object to remember the time it was put.
+	 * 
+	 * @param listener the listener
+	 * @return this queue, for chaining
+	 */
+	public EventQueue instrumentWith(EventQueueListener listener) {
+		this.listener = Objects.requireNonNull(listener);
+		return this;
+	}
+
 	/**
 	 * Puts an event in the queue, that will be provided to the consumer
 	 * (if the event queue hasn't been stopped).
 	 * 
+	 * In journaled mode, the event is appended to the journal first, and forced
+	 * to disk according to the journal's sync policy.
+	 * 
 	 * @param event the event for the queue
 	 */
 	public void put(Object event) {
+		EventQueueListener listener = this.listener;
+		Object queuedEvent = listener == null ? event : new TimedEvent(event, System.nanoTime());
 		try {
-			events.put(event);
+			if (journal == null) {
+				events.put(queuedEvent);
+			} else {
+				putJournaled(event, queuedEvent);
+			}
+			if (listener != null) {
+				listener.eventPut(events.size());
+			}
 		} catch (InterruptedException e) {
 		}
 	}
 
+	private void putJournaled(Object event, Object queuedEvent) throws InterruptedException {
+		long sequence;
+		// Queue the events in the order of the journal, so that commits are in order
+		synchronized (journal) {
+			sequence = journal.write(event);
+			events.put(queuedEvent);
+		}
+		journal.syncAccordingToPolicy(sequence);
+	}
+
 	/**
 	 * Stop providing events to the consumer.
 	 * 
@@ -81,13 +211,70 @@ public class EventQueue {
 			while (isRunning) {
 				final Object eventObject = take();
 				if (eventObject != null) {
-					consume(eventObject);
+					if (batchConsumer == null) {
+						consume(eventObject);
+					} else {
+						consumeBatchStartingWith(eventObject);
+					}
 				}
 			}
 		}
 
 		private void consume(Object event) {
-			eventConsumer.accept(event);
+			if (event instanceof TimedEvent) {
+				long startNanos = System.nanoTime();
+				Object unwrappedEvent = unwrap((TimedEvent) event, startNanos);
+				try {
+					eventConsumer.accept(unwrappedEvent);
+				} finally {
+					listener.eventsConsumed(1, System.nanoTime() - startNanos);
+				}
+			} else {
+				eventConsumer.accept(event);
+			}
+			commit(1);
+		}
+
+		private void consumeBatchStartingWith(Object firstEvent) {
+			batch.add(firstEvent);
+			events.drainTo(batch, maxBatchSize - 1);
+			try {
+				if (listener == null) {
+					batchConsumer.accept(unmodifiableBatch);
+				} else {
+					consumeTimedBatch();
+				}
+				commit(batch.size());
+			} finally {
+				batch.clear();
+			}
+		}
+
+		private void consumeTimedBatch() {
+			long startNanos = System.nanoTime();
+			for (int i = 0; i < batch.size(); i++) {
+				Object event = batch.get(i);
+				if (event instanceof TimedEvent) {
+					batch.set(i, unwrap((TimedEvent) event, startNanos));
+				}
+			}
+			try {
+				batchConsumer.accept(unmodifiableBatch);
+			} finally {
+				listener.eventsConsumed(batch.size(), System.nanoTime() - startNanos);
+			}
+		}
+
+		private void commit(int numberOfEvents) {
+			if (journal != null) {
+				committedSequence += numberOfEvents;
+				journal.commit(committedSequence);
+			}
+		}
+
+		private Object unwrap(TimedEvent timedEvent, long takenNanos) {
+			listener.eventTaken(takenNanos - timedEvent.putNanos);
+			return timedEvent.event;
 		}
 
 		private Object take() {
@@ -104,4 +291,17 @@ public class EventQueue {
 			isRunning = false;
 		}
 	}
+
+	/**
+	 * An event, together with the time it was put in an instrumented queue.
+	 */
+	private static class TimedEvent {
+		private final Object event;
+		private final long putNanos;
+
+		private TimedEvent(Object event, long putNanos) {
+			this.event = event;
+			this.putNanos = putNanos;
+		}
+	}
 }
@@ -0,0 +1,39 @@
+package org.requirementsascode.queue;
+
+/**
+ * Listens to what happens inside of an {@link EventQueue}, e.g. to collect
+ * metrics. See {@link EventQueueMetrics} for a ready-made implementation.
+ * 
+ * <p>
+ * The methods are called synchronously, on the thread that puts the event or
+ * on the producer thread of the queue. So they must return quickly, and must be
+ * thread safe.
+ * 
+ * @author b_muth
+ *
+ */
+public interface EventQueueListener {
+	/**
+	 * Called after an event has been put in the queue.
+	 * 
+	 * @param queueSize the number of events in the queue, including the new one
+	 */
+	void eventPut(int queueSize);
+
+	/**
+	 * Called when the producer thread has taken an event from the queue, before
+	 * forwarding it to the consumer.
+	 * 
+	 * @param waitNanos the time the event has waited in the queue, in nanoseconds
+	 */
+	void eventTaken(long waitNanos);
+
+	/**
+	 * Called after the consumer has returned.
+	 * 
+	 * @param numberOfEvents  the number of events forwarded to the consumer, more
+	 *                        than 1 only in batch mode
+	 * @param processingNanos the time the consumer took, in nanoseconds
+	 */
+	void eventsConsumed(int numberOfEvents, long processingNanos);
+}
@@ -0,0 +1,201 @@
+package org.requirementsascode.queue;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Collects metrics of an {@link EventQueue}: how many events have been put and
+ * consumed, how long they waited in the queue, how long the consumer took, the
+ * highest number of events in the queue ("high water mark"), and how often the
+ * consumer stalled, i.e. took longer than a threshold.
+ * 
+ * <p>
+ * If the waiting time grows together with the high water mark, the consumer
+ * can't keep up with the producers. If the consumer stalls, a single event
+ * holds up all events behind it.
+ * 
+ * <p>
+ * The metrics are cumulative, since creation of this object. They can be read
+ * at any time, from any thread.
+ * 
+ * @author b_muth
+ *
+ */
+public class EventQueueMetrics implements EventQueueListener {
+	private final long stallThresholdNanos;
+	private final long createdNanos;
+	private final LongAdder eventsPut;
+	private final LongAdder eventsTaken;
+	private final LongAdder eventsConsumed;
+	private final LongAdder consumerCalls;
+	private final LongAdder totalWaitNanos;
+	private final LongAdder totalProcessingNanos;
+	private final LongAdder stalls;
+	private final AtomicLong maxWaitNanos;
+	private final AtomicLong maxProcessingNanos;
+	private final AtomicLong highWaterMark;
+
+	/**
+	 * Creates metrics that count a consumer call as stall if it takes longer than
+	 * the specified threshold.
+	 * 
+	 * @param stallThreshold the threshold, at least 0
+	 * @param unit           the time unit of the threshold
+	 * @throws IllegalArgumentException if the threshold is negative
+	 */
+	public EventQueueMetrics(long stallThreshold, TimeUnit unit) {
+		if (stallThreshold < 0) {
+			throw new IllegalArgumentException("Stall threshold must not be negative, but was " + stallThreshold);
+		}
+		this.stallThresholdNanos = unit.toNanos(stallThreshold);
+		this.createdNanos = System.nanoTime();
+		this.eventsPut = new LongAdder();
+		this.eventsTaken = new LongAdder();
+		this.eventsConsumed = new LongAdder();
+		this.consumerCalls = new LongAdder();
+		this.totalWaitNanos = new LongAdder();
+		this.totalProcessingNanos = new LongAdder();
+		this.stalls = new LongAdder();
+		this.maxWaitNanos = new AtomicLong();
+		this.maxProcessingNanos = new AtomicLong();
+		this.highWaterMark = new AtomicLong();
+	}
+
+	@Override
+	public void eventPut(int queueSize) {
+		eventsPut.increment();
+		updateMaximum(highWaterMark, queueSize);
+	}
+
+	@Override
+	public void eventTaken(long waitNanos) {
+		eventsTaken.increment();
+		totalWaitNanos.add(waitNanos);
+		updateMaximum(maxWaitNanos, waitNanos);
+	}
+
+	@Override
+	public void eventsConsumed(int numberOfEvents, long processingNanos) {
+		eventsConsumed.add(numberOfEvents);
+		consumerCalls.increment();
+		totalProcessingNanos.add(processingNanos);
+		updateMaximum(maxProcessingNanos, processingNanos);
+		if (processingNanos > stallThresholdNanos) {
+			stalls.increment();
+		}
+	}
+
+	private void updateMaximum(AtomicLong maximum, long value) {
+		long currentMaximum = maximum.get();
+		while (value > currentMaximum && !maximum.compareAndSet(currentMaximum, value)) {
+			currentMaximum = maximum.get();
+		}
+	}
+
+	/**
+	 * Returns the number of events put in the queue.
+	 * 
+	 * @return the number of events put
+	 */
+	public long getEventsPut() {
+		return eventsPut.sum();
+	}
+
+	/**
+	 * Returns the number of events the consumer has returned from.
+	 * 
+	 * @return the number of events consumed
+	 */
+	public long getEventsConsumed() {
+		return eventsConsumed.sum();
+	}
+
+	/**
+	 * Returns the number of events consumed per second, since creation of the
+	 * metrics.
+	 * 
+	 * @return the throughput
+	 */
+	public double getEventsConsumedPerSecond() {
+		long elapsedNanos = Math.max(1, System.nanoTime() - createdNanos);
+		double throughput = getEventsConsumed() * (double) TimeUnit.SECONDS.toNanos(1) / elapsedNanos;
+		return throughput;
+	}
+
+	/**
+	 * Returns the average time an event has waited in the queue, from being put
+	 * until being taken by the producer thread.
+	 * 
+	 * @return the average waiting time in nanoseconds, or 0 if no event has been
+	 *         taken
+	 */
+	public long getAverageWaitNanos() {
+		long average = average(totalWaitNanos, eventsTaken);
+		return average;
+	}
+
+	/**
+	 * Returns the longest time an event has waited in the queue.
+	 * 
+	 * @return the maximum waiting time in nanoseconds
+	 */
+	public long getMaxWaitNanos() {
+		return maxWaitNanos.get();
+	}
+
+	/**
+	 * Returns the average time of a consumer call. In batch mode, a call
+	 * processes a whole batch.
+	 * 
+	 * @return the average processing time in nanoseconds, or 0 if the consumer
+	 *         hasn't been called
+	 */
+	public long getAverageProcessingNanos() {
+		long average = average(totalProcessingNanos, consumerCalls);
+		return average;
+	}
+
+	/**
+	 * Returns the longest time of a consumer call.
+	 * 
+	 * @return the maximum processing time in nanoseconds
+	 */
+	public long getMaxProcessingNanos() {
+		return maxProcessingNanos.get();
+	}
+
+	private long average(LongAdder total, LongAdder count) {
+		long countSum = count.sum();
+		long average = countSum == 0 ? 0 : total.sum() / countSum;
+		return average;
+	}
+
+	/**
+	 * Returns the highest number of events that have been in the queue at the
+	 * same time.
+	 * 
+	 * @return the high water mark
+	 */
+	public long getHighWaterMark() {
+		return highWaterMark.get();
+	}
+
+	/**
+	 * Returns the number of consumer calls that took longer than the stall
+	 * threshold.
+	 * 
+	 * @return the number of stalls
+	 */
+	public long getStalls() {
+		return stalls.sum();
+	}
+
+	@Override
+	public String toString() {
+		return "EventQueueMetrics [eventsPut=" + getEventsPut() + ", eventsConsumed=" + getEventsConsumed()
+			+ ", averageWaitNanos=" + getAverageWaitNanos() + ", maxWaitNanos=" + getMaxWaitNanos()
+			+ ", averageProcessingNanos=" + getAverageProcessingNanos() + ", maxProcessingNanos="
+			+ getMaxProcessingNanos() + ", highWaterMark=" + getHighWaterMark() + ", stalls=" + getStalls() + "]";
+	}
+}
@@ -0,0 +1,28 @@
+package org.requirementsascode.queue;
+
+/**
+ * Converts events to bytes and back, so that an {@link EventJournal} can store
+ * them. See {@link JavaEventSerializer} for an implementation based on Java
+ * serialization.
+ * 
+ * @author b_muth
+ *
+ */
+public interface EventSerializer {
+	/**
+	 * Converts the specified event to bytes.
+	 * 
+	 * @param event the event
+	 * @return the bytes, not empty
+	 */
+	byte[] serialize(Object event);
+
+	/**
+	 * Converts the specified bytes, created by {@link #serialize(Object)}, back
+	 * to an event.
+	 * 
+	 * @param bytes the bytes
+	 * @return the event
+	 */
+	Object deserialize(byte[] bytes);
+}
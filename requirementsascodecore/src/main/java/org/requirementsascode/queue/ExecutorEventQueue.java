@@ -0,0 +1,180 @@
+package org.requirementsascode.queue;
+
+import java.lang.reflect.Method;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * An event queue that forwards events to an event consumer, one at a time,
+ * like {@link EventQueue}, but without a thread of its own.
+ * 
+ * <p>
+ * When events arrive, the queue schedules a task on an executor that forwards
+ * them to the consumer. At most one task per queue is scheduled at a time, so
+ * the consumer is never called concurrently, and it sees the events in the
+ * order they have been put. An idle queue uses no thread at all, so many queues
+ * can share a few threads, e.g. one queue per actor or per session.
+ * 
+ * <p>
+ * To be fair to other queues on the same executor, a task forwards a limited
+ * number of events, then schedules a new task for the rest.
+ * 
+ * @author b_muth
+ *
+ */
+public class ExecutorEventQueue {
+	private static final int DEFAULT_MAX_EVENTS_PER_TASK = 64;
+
+	private final Queue<Object> events;
+	private final AtomicInteger size;
+	private final AtomicBoolean isScheduled;
+	private final Executor executor;
+	private final Consumer<Object> eventConsumer;
+	private final int maxEventsPerTask;
+	private volatile boolean isRunning;
+
+	/**
+	 * Create an event queue whose events will be consumed by the specified
+	 * consumer, on the default executor (see {@link #defaultExecutor()}).
+	 * 
+	 * @param eventConsumer the target of events
+	 */
+	public ExecutorEventQueue(Consumer<Object> eventConsumer) {
+		this(eventConsumer, defaultExecutor());
+	}
+
+	/**
+	 * Create an event queue whose events will be consumed by the specified
+	 * consumer, on the specified executor.
+	 * 
+	 * @param eventConsumer the target of events
+	 * @param executor      the executor that runs the tasks forwarding the events
+	 */
+	public ExecutorEventQueue(Consumer<Object> eventConsumer, Executor executor) {
+		this(eventConsumer, executor, DEFAULT_MAX_EVENTS_PER_TASK);
+	}
+
+	/**
+	 * Create an event queue whose events will be consumed by the specified
+	 * consumer, on the specified executor.
+	 * 
+	 * @param eventConsumer    the target of events
+	 * @param executor         the executor that runs the tasks forwarding the
+	 *                         events
+	 * @param maxEventsPerTask the maximum number of events a task forwards before
+	 *                         it gives other queues a chance, at least 1
+	 * @throws IllegalArgumentException if the maximum number of events per task is
+	 *                                  less than 1
+	 */
+	public ExecutorEventQueue(Consumer<Object> eventConsumer, Executor executor, int maxEventsPerTask) {
+		if (maxEventsPerTask < 1) {
+			throw new IllegalArgumentException("Maximum events per task must be at least 1, but was " + maxEventsPerTask);
+		}
+		this.events = new ConcurrentLinkedQueue<>();
+		this.size = new AtomicInteger();
+		this.isScheduled = new AtomicBoolean();
+		this.executor = Objects.requireNonNull(executor);
+		this.eventConsumer = Objects.requireNonNull(eventConsumer);
+		this.maxEventsPerTask = maxEventsPerTask;
+		this.isRunning = true;
+	}
+
+	/**
+	 * Returns the executor that queues use if none is specified: an executor that
+	 * runs each task on a new virtual thread, if the JVM supports virtual threads,
+	 * or the common fork join pool otherwise.
+	 * 
+	 * @return the default executor
+	 */
+	public static Executor defaultExecutor() {
+		return DefaultExecutor.INSTANCE;
+	}
+
+	/**
+	 * Puts an event in the queue, that will be provided to the consumer (if the
+	 * event queue hasn't been stopped).
+	 * 
+	 * @param event the event for the queue
+	 */
+	public void put(Object event) {
+		Objects.requireNonNull(event);
+		events.add(event);
+		size.incrementAndGet();
+		schedule();
+	}
+
+	/**
+	 * Stop providing events to the consumer. An event that is being consumed
+	 * while this method is called is consumed to the end.
+	 */
+	public void stop() {
+		isRunning = false;
+	}
+
+	/**
+	 * Returns whether this queue is empty.
+	 * 
+	 * @return true if empty, false if not
+	 */
+	public boolean isEmpty() {
+		return events.isEmpty();
+	}
+
+	public int getSize() {
+		return size.get();
+	}
+
+	private void schedule() {
+		if (isRunning && isScheduled.compareAndSet(false, true)) {
+			try {
+				executor.execute(this::forwardEvents);
+			} catch (RuntimeException e) {
+				isScheduled.set(false);
+				throw e;
+			}
+		}
+	}
+
+	private void forwardEvents() {
+		try {
+			for (int i = 0; i < maxEventsPerTask && isRunning; i++) {
+				Object event = events.poll();
+				if (event == null) {
+					break;
+				}
+				size.decrementAndGet();
+				eventConsumer.accept(event);
+			}
+		} finally {
+			isScheduled.set(false);
+			// Events that arrived after the last poll, while this task was still
+			// scheduled, need a new task
+			if (!events.isEmpty()) {
+				schedule();
+			}
+		}
+	}
+
+	private static class DefaultExecutor {
+		private static final Executor INSTANCE = createDefaultExecutor();
+
+		private static Executor createDefaultExecutor() {
+			Executor executor;
+			try {
+				Method newVirtualThreadPerTaskExecutor = Executors.class
+					.getMethod("newVirtualThreadPerTaskExecutor");
+				executor = (Executor) newVirtualThreadPerTaskExecutor.invoke(null);
+			} catch (ReflectiveOperationException | RuntimeException e) {
+				executor = ForkJoinPool.commonPool();
+			}
+			return executor;
+		}
+	}
+}
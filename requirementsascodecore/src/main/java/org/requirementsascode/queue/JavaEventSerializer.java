@@ -0,0 +1,43 @@
+package org.requirementsascode.queue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.UncheckedIOException;
+
+/**
+ * Serializes events with Java serialization. So the events must implement
+ * {@link java.io.Serializable}.
+ * 
+ * Java serialization is convenient, but neither compact nor fast. For high
+ * throughput, implement an {@link EventSerializer} for your event classes.
+ * 
+ * @author b_muth
+ *
+ */
+public class JavaEventSerializer implements EventSerializer {
+	@Override
+	public byte[] serialize(Object event) {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+			out.writeObject(event);
+		} catch (IOException e) {
+			throw new UncheckedIOException("Could not serialize event " + event, e);
+		}
+		return bytes.toByteArray();
+	}
+
+	@Override
+	public Object deserialize(byte[] bytes) {
+		try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+			Object event = in.readObject();
+			return event;
+		} catch (IOException e) {
+			throw new UncheckedIOException("Could not deserialize event", e);
+		} catch (ClassNotFoundException e) {
+			throw new IllegalArgumentException("Could not deserialize event", e);
+		}
+	}
+}
@@ -0,0 +1,189 @@
+package org.requirementsascode.queue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * A memory-mapped file of an {@link EventJournal}, with a fixed size.
+ * 
+ * <p>
+ * The file starts with a header: a magic number, and the sequence number of
+ * the first event in the segment. After that, each event is a record: the
+ * length of the serialized event, its checksum, and the serialized event. A
+ * length of 0 marks the end of the records.
+ * 
+ * <p>
+ * A record's length is written last, after a length of 0 behind the record.
+ * So if the process crashes while appending, the record is missing, not
+ * incomplete. If the operating system crashes, the checksum detects a record
+ * that has only been written in part.
+ * 
+ * @author b_muth
+ *
+ */
+class JournalSegment {
+	private static final int MAGIC = 0x524A4E4C;
+	private static final int HEADER_SIZE = 12;
+	private static final int RECORD_HEADER_SIZE = 8;
+
+	private final Path path;
+	private final long baseSequence;
+	private final MappedByteBuffer buffer;
+	private int numberOfRecords;
+	private int writePosition;
+
+	private JournalSegment(Path path, long baseSequence, MappedByteBuffer buffer) {
+		this.path = path;
+		this.baseSequence = baseSequence;
+		this.buffer = buffer;
+		this.writePosition = HEADER_SIZE;
+	}
+
+	static JournalSegment create(Path path, long baseSequence, int size) throws IOException {
+		JournalSegment segment = new JournalSegment(path, baseSequence, map(path, size,
+			StandardOpenOption.CREATE_NEW));
+		segment.buffer.putInt(0, MAGIC);
+		segment.buffer.putLong(4, baseSequence);
+		return segment;
+	}
+
+	/**
+	 * Opens an existing segment, and finds the end of its valid records.
+	 * 
+	 * @throws IllegalArgumentException if the file is not a segment, or not the
+	 *                                  segment with the specified base sequence
+	 */
+	static JournalSegment open(Path path, long baseSequence) throws IOException {
+		long size = path.toFile().length();
+		if (size < HEADER_SIZE || size > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("Not a journal segment: " + path);
+		}
+		JournalSegment segment = new JournalSegment(path, baseSequence, map(path, (int) size));
+		if (segment.buffer.getInt(0) != MAGIC || segment.buffer.getLong(4) != baseSequence) {
+			throw new IllegalArgumentException("Not a journal segment with base sequence " + baseSequence + ": " + path);
+		}
+		segment.findEndOfRecords();
+		return segment;
+	}
+
+	private static MappedByteBuffer map(Path path, int size, StandardOpenOption... additionalOptions)
+		throws IOException {
+		StandardOpenOption[] options = new StandardOpenOption[additionalOptions.length + 2];
+		options[0] = StandardOpenOption.READ;
+		options[1] = StandardOpenOption.WRITE;
+		System.arraycopy(additionalOptions, 0, options, 2, additionalOptions.length);
+
+		// The mapping stays valid after the channel has been closed
+		try (FileChannel channel = FileChannel.open(path, options)) {
+			MappedByteBuffer buffer = channel.map(MapMode.READ_WRITE, 0, size);
+			return buffer;
+		}
+	}
+
+	private void findEndOfRecords() {
+		CRC32 crc = new CRC32();
+		ByteBuffer readBuffer = buffer.duplicate();
+		while (true) {
+			int length = validLengthOfRecordAt(writePosition);
+			if (length == 0) {
+				break;
+			}
+			byte[] bytes = new byte[length];
+			readBuffer.position(writePosition + RECORD_HEADER_SIZE);
+			readBuffer.get(bytes);
+			crc.reset();
+			crc.update(bytes, 0, length);
+			if ((int) crc.getValue() != buffer.getInt(writePosition + 4)) {
+				break;
+			}
+			numberOfRecords++;
+			writePosition += RECORD_HEADER_SIZE + length;
+		}
+	}
+
+	private int validLengthOfRecordAt(int position) {
+		if (position + RECORD_HEADER_SIZE > buffer.capacity()) {
+			return 0;
+		}
+		int length = buffer.getInt(position);
+		if (length <= 0 || length > buffer.capacity() - position - RECORD_HEADER_SIZE) {
+			return 0;
+		}
+		return length;
+	}
+
+	static int maxRecordLength(int segmentSize) {
+		return segmentSize - HEADER_SIZE - RECORD_HEADER_SIZE;
+	}
+
+	boolean hasRoomFor(int length) {
+		boolean hasRoom = length <= buffer.capacity() - writePosition - RECORD_HEADER_SIZE;
+		return hasRoom;
+	}
+
+	/**
+	 * Appends a record, which must fit into the segment.
+	 * 
+	 * @return the sequence number of the record
+	 */
+	long append(byte[] bytes) {
+		CRC32 crc = new CRC32();
+		crc.update(bytes, 0, bytes.length);
+
+		int endPosition = writePosition + RECORD_HEADER_SIZE + bytes.length;
+		if (endPosition + 4 <= buffer.capacity()) {
+			buffer.putInt(endPosition, 0);
+		}
+		buffer.position(writePosition + RECORD_HEADER_SIZE);
+		buffer.put(bytes);
+		buffer.putInt(writePosition + 4, (int) crc.getValue());
+		buffer.putInt(writePosition, bytes.length);
+
+		long sequence = baseSequence + numberOfRecords;
+		numberOfRecords++;
+		writePosition = endPosition;
+		return sequence;
+	}
+
+	/**
+	 * Deserializes the events of this segment, starting with the specified
+	 * sequence number, and passes them to the specified consumer.
+	 */
+	void forEachEvent(long fromSequence, EventSerializer serializer, Consumer<Object> eventConsumer) {
+		ByteBuffer readBuffer = buffer.duplicate();
+		int position = HEADER_SIZE;
+		for (long sequence = baseSequence; sequence < getNextSequence(); sequence++) {
+			int length = buffer.getInt(position);
+			if (sequence >= fromSequence) {
+				byte[] bytes = new byte[length];
+				readBuffer.position(position + RECORD_HEADER_SIZE);
+				readBuffer.get(bytes);
+				eventConsumer.accept(serializer.deserialize(bytes));
+			}
+			position += RECORD_HEADER_SIZE + length;
+		}
+	}
+
+	void force() {
+		buffer.force();
+	}
+
+	Path getPath() {
+		return path;
+	}
+
+	long getBaseSequence() {
+		return baseSequence;
+	}
+
+	long getNextSequence() {
+		return baseSequence + numberOfRecords;
+	}
+}
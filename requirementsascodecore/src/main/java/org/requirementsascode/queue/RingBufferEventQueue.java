@@ -0,0 +1,254 @@
+package org.requirementsascode.queue;
+
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * An event queue with a bounded capacity, that forwards events to an event
+ * consumer, one at a time, like {@link EventQueue}.
+ * 
+ * <p>
+ * The events are stored in a ring buffer that is allocated once, so putting an
+ * event doesn't allocate memory. Any number of threads can put events, without
+ * taking a lock. A single consumer thread, that the queue runs internally,
+ * takes them. When the queue is full, {@link #put(Object)} waits until there is
+ * room, and {@link #offer(Object)} fails. How threads wait is defined by the
+ * {@link WaitStrategy}.
+ * 
+ * @author b_muth
+ *
+ */
+public class RingBufferEventQueue {
+	private static final long PRODUCER_PARK_NANOS = 10_000;
+
+	private final Object[] events;
+	private final AtomicLongArray sequences;
+	private final int mask;
+	private final AtomicLong tail;
+	private volatile long head;
+	private final WaitStrategy waitStrategy;
+	private final Consumer<Object> eventConsumer;
+	private final EventProducer eventProducer;
+	private final Thread eventProducerThread;
+	private volatile boolean isConsumerParked;
+
+	/**
+	 * Create an event queue whose events will be consumed by the specified
+	 * consumer. Threads wait by parking.
+	 * 
+	 * @param eventConsumer the target of events
+	 * @param capacity      the maximum number of events in the queue, rounded up to
+	 *                      a power of two of at least 2
+	 * @throws IllegalArgumentException if the capacity is less than 1 or greater
+	 *                                  than 2^30
+	 */
+	public RingBufferEventQueue(Consumer<Object> eventConsumer, int capacity) {
+		this(eventConsumer, capacity, WaitStrategy.PARK);
+	}
+
+	/**
+	 * Create an event queue whose events will be consumed by the specified
+	 * consumer.
+	 * 
+	 * @param eventConsumer the target of events
+	 * @param capacity      the maximum number of events in the queue, rounded up to
+	 *                      a power of two of at least 2
+	 * @param waitStrategy  how threads wait while the queue is empty or full
+	 * @throws IllegalArgumentException if the capacity is less than 1 or greater
+	 *                                  than 2^30
+	 */
+	public RingBufferEventQueue(Consumer<Object> eventConsumer, int capacity, WaitStrategy waitStrategy) {
+		if (capacity < 1 || capacity > 1 << 30) {
+			throw new IllegalArgumentException("Capacity must be between 1 and 2^30, but was " + capacity);
+		}
+		// At least 2, so that a published slot can be told apart from a free one
+		int size = capacity <= 2 ? 2 : Integer.highestOneBit(capacity - 1) << 1;
+
+		this.events = new Object[size];
+		this.sequences = new AtomicLongArray(size);
+		for (int i = 0; i < size; i++) {
+			sequences.set(i, i);
+		}
+		this.mask = size - 1;
+		this.tail = new AtomicLong();
+		this.waitStrategy = Objects.requireNonNull(waitStrategy);
+		this.eventConsumer = Objects.requireNonNull(eventConsumer);
+		this.eventProducer = new EventProducer();
+		this.eventProducerThread = new Thread(eventProducer);
+		eventProducerThread.start();
+	}
+
+	/**
+	 * Puts an event in the queue, that will be provided to the consumer (if the
+	 * event queue hasn't been stopped). If the queue is full, waits until there is
+	 * room. If the queue is stopped, or the calling thread is interrupted while
+	 * waiting, the event is discarded.
+	 * 
+	 * @param event the event for the queue
+	 */
+	public void put(Object event) {
+		Objects.requireNonNull(event);
+
+		while (!offer(event)) {
+			if (!eventProducer.isRunning || Thread.currentThread().isInterrupted()) {
+				return;
+			}
+			waitAsProducer();
+		}
+	}
+
+	/**
+	 * Puts an event in the queue, if there is room, that will be provided to the
+	 * consumer (if the event queue hasn't been stopped).
+	 * 
+	 * @param event the event for the queue
+	 * @return true if the event has been put in the queue, false if the queue is
+	 *         full
+	 */
+	public boolean offer(Object event) {
+		Objects.requireNonNull(event);
+
+		long position;
+		int index;
+		while (true) {
+			position = tail.get();
+			index = (int) position & mask;
+			long difference = sequences.get(index) - position;
+			if (difference == 0) {
+				if (tail.compareAndSet(position, position + 1)) {
+					break;
+				}
+			} else if (difference < 0) {
+				return false;
+			}
+		}
+
+		// The slot is claimed. Publishing the sequence makes the event visible to the
+		// consumer.
+		events[index] = event;
+		sequences.set(index, position + 1);
+		if (isConsumerParked) {
+			LockSupport.unpark(eventProducerThread);
+		}
+		return true;
+	}
+
+	/**
+	 * Stop providing events to the consumer.
+	 * 
+	 * Internally, that stops the producer thread.
+	 */
+	public void stop() {
+		eventProducer.stopProviding();
+		try {
+			eventProducerThread.interrupt();
+			eventProducerThread.join();
+		} catch (InterruptedException e) {
+		}
+	}
+
+	/**
+	 * Returns whether this queue is empty.
+	 * 
+	 * @return true if empty, false if not
+	 */
+	public boolean isEmpty() {
+		return getSize() == 0;
+	}
+
+	public int getSize() {
+		long size = tail.get() - head;
+		return (int) Math.max(0, Math.min(size, events.length));
+	}
+
+	/**
+	 * Returns the maximum number of events in the queue.
+	 * 
+	 * @return the capacity
+	 */
+	public int getCapacity() {
+		return events.length;
+	}
+
+	private void waitAsProducer() {
+		switch (waitStrategy) {
+		case BUSY_SPIN:
+			break;
+		case YIELD:
+			Thread.yield();
+			break;
+		default:
+			LockSupport.parkNanos(this, PRODUCER_PARK_NANOS);
+		}
+	}
+
+	private class EventProducer implements Runnable {
+		private volatile boolean isRunning = true;
+
+		@Override
+		public void run() {
+			while (isRunning) {
+				final Object eventObject = take();
+				if (eventObject != null) {
+					consume(eventObject);
+				}
+			}
+		}
+
+		private void consume(Object event) {
+			eventConsumer.accept(event);
+		}
+
+		/**
+		 * Takes the next event, waiting while the queue is empty.
+		 * 
+		 * @return the event, or null if the queue has been stopped
+		 */
+		private Object take() {
+			Object event = poll();
+			while (event == null && isRunning) {
+				waitAsConsumer();
+				event = poll();
+			}
+			return event;
+		}
+
+		private Object poll() {
+			long position = head;
+			int index = (int) position & mask;
+			if (sequences.get(index) != position + 1) {
+				return null;
+			}
+			Object event = events[index];
+			events[index] = null;
+			sequences.set(index, position + events.length);
+			head = position + 1;
+			return event;
+		}
+
+		private void waitAsConsumer() {
+			switch (waitStrategy) {
+			case BUSY_SPIN:
+				break;
+			case YIELD:
+				Thread.yield();
+				break;
+			default:
+				isConsumerParked = true;
+				// Check again, as a producer may have published the event before it saw the
+				// flag
+				if (sequences.get((int) head & mask) != head + 1 && isRunning) {
+					LockSupport.park(this);
+				}
+				isConsumerParked = false;
+			}
+		}
+
+		private void stopProviding() {
+			isRunning = false;
+		}
+	}
+}
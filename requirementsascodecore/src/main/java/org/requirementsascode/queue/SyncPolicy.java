@@ -0,0 +1,91 @@
+package org.requirementsascode.queue;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Defines when an {@link EventJournal} forces appended events to disk.
+ * 
+ * <p>
+ * The journal writes to memory-mapped files. So appended events survive a
+ * crash of the process even without forcing them to disk, because the
+ * operating system writes them back eventually. Forcing them is needed to
+ * survive a crash of the operating system, or a power failure, but it is
+ * expensive. So several threads that append at the same time share a single
+ * sync ("group commit").
+ * 
+ * @author b_muth
+ *
+ */
+public final class SyncPolicy {
+	private final long maxUnsyncedEvents;
+	private final long maxUnsyncedNanos;
+
+	private SyncPolicy(long maxUnsyncedEvents, long maxUnsyncedNanos) {
+		this.maxUnsyncedEvents = maxUnsyncedEvents;
+		this.maxUnsyncedNanos = maxUnsyncedNanos;
+	}
+
+	/**
+	 * Each append returns after its event has been forced to disk.
+	 * 
+	 * @return the policy
+	 */
+	public static SyncPolicy onEveryAppend() {
+		SyncPolicy syncPolicy = new SyncPolicy(1, Long.MAX_VALUE);
+		return syncPolicy;
+	}
+
+	/**
+	 * An append forces all events to disk if the specified number of events
+	 * hasn't been forced yet.
+	 * 
+	 * @param maxUnsyncedEvents the maximum number of events not forced to disk, at
+	 *                          least 1
+	 * @return the policy
+	 * @throws IllegalArgumentException if the number of events is less than 1
+	 */
+	public static SyncPolicy afterEvents(int maxUnsyncedEvents) {
+		if (maxUnsyncedEvents < 1) {
+			throw new IllegalArgumentException("Maximum number of unsynced events must be at least 1, but was "
+				+ maxUnsyncedEvents);
+		}
+		SyncPolicy syncPolicy = new SyncPolicy(maxUnsyncedEvents, Long.MAX_VALUE);
+		return syncPolicy;
+	}
+
+	/**
+	 * An append forces all events to disk if the specified time has passed since
+	 * the last sync. There is no background thread, so after the last append,
+	 * events are only forced by {@link EventJournal#sync()} or
+	 * {@link EventJournal#close()}.
+	 * 
+	 * @param interval the time between syncs, at least 0
+	 * @param unit     the time unit of the interval
+	 * @return the policy
+	 * @throws IllegalArgumentException if the interval is negative
+	 */
+	public static SyncPolicy afterInterval(long interval, TimeUnit unit) {
+		if (interval < 0) {
+			throw new IllegalArgumentException("Sync interval must not be negative, but was " + interval);
+		}
+		SyncPolicy syncPolicy = new SyncPolicy(Long.MAX_VALUE, unit.toNanos(interval));
+		return syncPolicy;
+	}
+
+	/**
+	 * Appends never force events to disk, the operating system decides when to
+	 * write them back. Events are only forced by {@link EventJournal#sync()} or
+	 * {@link EventJournal#close()}.
+	 * 
+	 * @return the policy
+	 */
+	public static SyncPolicy never() {
+		SyncPolicy syncPolicy = new SyncPolicy(Long.MAX_VALUE, Long.MAX_VALUE);
+		return syncPolicy;
+	}
+
+	boolean isSyncDue(long unsyncedEvents, long nanosSinceLastSync) {
+		boolean isSyncDue = unsyncedEvents >= maxUnsyncedEvents || nanosSinceLastSync >= maxUnsyncedNanos;
+		return isSyncDue;
+	}
+}
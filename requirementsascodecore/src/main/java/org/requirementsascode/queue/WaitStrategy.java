@@ -0,0 +1,29 @@
+package org.requirementsascode.queue;
+
+/**
+ * How a thread waits for a queue: the consumer thread while the queue is empty,
+ * and a producer thread while the queue is full.
+ * 
+ * @author b_muth
+ *
+ */
+public enum WaitStrategy {
+	/**
+	 * Retries in a tight loop. Lowest latency, but occupies a CPU core per waiting
+	 * thread.
+	 */
+	BUSY_SPIN,
+
+	/**
+	 * Yields the CPU to other threads between retries. Low latency, as long as
+	 * there are free cores.
+	 */
+	YIELD,
+
+	/**
+	 * Parks the waiting thread. The consumer is unparked when an event arrives, a
+	 * producer retries after a short pause. Uses the least CPU, at the cost of
+	 * higher latency.
+	 */
+	PARK
+}
@@ -13,10 +13,20 @@ public abstract class AbstractContinuesAfter extends AbstractContinues {
 	@Override
   public void accept(ModelRunner runner) {
     if(previousStep == null) {
-      previousStep = resolvePreviousStep();
+      resolve();
     }
     runner.setLatestStep(previousStep);
   }
 
+  /**
+   * Resolves the previous step and stores it, so that accepting a runner
+   * doesn't need to resolve it again. Called when the model is built.
+   */
+  public void resolve() {
+    if(previousStep == null) {
+      previousStep = resolvePreviousStep();
+    }
+  }
+
   public abstract FlowStep resolvePreviousStep();
 }
@@ -21,6 +21,9 @@ public class ContinuesWithoutAlternativeAt extends AbstractContinues {
   }
 
   public void resolveContinueAtStep() {
+    if(continueAtStep != null) {
+      return;
+    }
     continueAtStep = ((FlowStep) currentStep.getUseCase().findStep(getStepName()));
     continueAtStep.orAfter(currentStep);
   }
@@ -5,11 +5,21 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
 
 import org.junit.Before;
 import org.junit.Test;
+import org.requirementsascode.exception.InfiniteRepetition;
 
 public class ActorWithBehaviorTest extends AbstractTestCase{
 	
@@ -113,6 +123,137 @@ public class ActorWithBehaviorTest extends AbstractTestCase{
 		assertEquals(TEXT, publishedString);
 	}
   
+  @Test
+  public void actorReturnsPublishedEventOfAsyncMessage() throws Exception {
+		Model model = modelBuilder
+			.step(CUSTOMER_ENTERS_TEXT).user(EntersText.class).systemPublish(publishEnteredTextAsString())
+		.build();
+
+		CompletableFuture<Optional<String>> future = customer.withBehavior(model).askAsync(entersText());
+		assertEquals(TEXT, future.get(10, TimeUnit.SECONDS).get());
+  }
+
+  @Test
+  public void actorReactsToAsyncMessagesInOrder() throws Exception {
+		List<Integer> enteredNumbers = new ArrayList<>();
+		Model model = modelBuilder
+			.step(CUSTOMER_ENTERS_NUMBER).user(EntersNumber.class).system(en -> enteredNumbers.add(en.value()))
+		.build();
+		customer.withBehavior(model);
+
+		for (int i = 0; i < 99; i++) {
+			customer.tellAsync(new EntersNumber(i));
+		}
+		customer.askAsync(new EntersNumber(99)).get(10, TimeUnit.SECONDS);
+
+		List<Integer> expectedNumbers = new ArrayList<>();
+		for (int i = 0; i < 100; i++) {
+			expectedNumbers.add(i);
+		}
+		assertEquals(expectedNumbers, enteredNumbers);
+  }
+
+  @Test
+  public void actorCompletesFutureOfAsyncMessageExceptionally() throws Exception {
+		Model model = modelBuilder
+			.step(CUSTOMER_ENTERS_TEXT).user(EntersText.class).system(et -> {
+				throw new IllegalStateException(et.value());
+			})
+		.build();
+
+		CompletableFuture<Optional<Object>> future = customer.withBehavior(model).askAsync(entersText());
+		try {
+			future.get(10, TimeUnit.SECONDS);
+		} catch (ExecutionException e) {
+			assertEquals(Arrays.asList(IllegalStateException.class, TEXT),
+				Arrays.asList(e.getCause().getClass(), e.getCause().getMessage()));
+			return;
+		}
+		throw new AssertionError("Future should have completed exceptionally");
+  }
+
+  @Test
+  public void actorPassesExceptionOfToldMessageToAsyncExceptionHandler() throws InterruptedException {
+		List<Exception> handledExceptions = new ArrayList<>();
+		CountDownLatch exceptionHandled = new CountDownLatch(1);
+		Model model = modelBuilder
+			.step(CUSTOMER_ENTERS_TEXT).user(EntersText.class).system(et -> {
+				throw new IllegalStateException(et.value());
+			})
+		.build();
+		customer.withBehavior(model);
+		customer.handleAsyncExceptionsWith(e -> {
+			handledExceptions.add(e);
+			exceptionHandled.countDown();
+		});
+
+		customer.tellAsync(entersText());
+
+		assertTrue(exceptionHandled.await(10, TimeUnit.SECONDS));
+		assertEquals(IllegalStateException.class, handledExceptions.get(0).getClass());
+		assertEquals(TEXT, handledExceptions.get(0).getMessage());
+  }
+
+  @Test
+  public void actorPassesExceptionOfToldMessageToUncaughtExceptionHandlerByDefault() throws InterruptedException {
+		List<Throwable> uncaughtExceptions = new ArrayList<>();
+		CountDownLatch exceptionHandled = new CountDownLatch(1);
+		Actor actor = actorWithUncaughtExceptionHandler((thread, e) -> {
+			uncaughtExceptions.add(e);
+			exceptionHandled.countDown();
+		});
+		actor.withBehavior(modelBuilder
+			.user(EntersText.class).system(et -> {
+				throw new IllegalStateException(et.value());
+			})
+		.build());
+
+		actor.tellAsync(entersText());
+
+		assertTrue(exceptionHandled.await(10, TimeUnit.SECONDS));
+		assertEquals(IllegalStateException.class, uncaughtExceptions.get(0).getClass());
+  }
+
+  @Test
+  public void actorCompletesFutureExceptionallyAndRethrowsError() throws Exception {
+		List<Throwable> uncaughtExceptions = new ArrayList<>();
+		CountDownLatch errorRethrown = new CountDownLatch(1);
+		Actor actor = actorWithUncaughtExceptionHandler((thread, e) -> {
+			uncaughtExceptions.add(e);
+			errorRethrown.countDown();
+		});
+		actor.withBehavior(modelBuilder
+			.user(EntersText.class).system(et -> {
+				throw new AssertionError(et.value());
+			})
+		.build());
+
+		CompletableFuture<Optional<Object>> future = actor.askAsync(entersText());
+
+		try {
+			future.get(10, TimeUnit.SECONDS);
+			throw new IllegalStateException("Future should have completed exceptionally");
+		} catch (ExecutionException e) {
+			assertEquals(AssertionError.class, e.getCause().getClass());
+		}
+		assertTrue(errorRethrown.await(10, TimeUnit.SECONDS));
+		assertEquals(AssertionError.class, uncaughtExceptions.get(0).getClass());
+  }
+
+  private Actor actorWithUncaughtExceptionHandler(Thread.UncaughtExceptionHandler uncaughtExceptionHandler) {
+		Actor actor = new Actor(CUSTOMER) {
+			@Override
+			protected Executor mailboxExecutor() {
+				return task -> {
+					Thread thread = new Thread(task);
+					thread.setUncaughtExceptionHandler(uncaughtExceptionHandler);
+					thread.start();
+				};
+			}
+		};
+		return actor;
+  }
+
   @Test
   public void actorModelRunnerIsConfigurable() {
 		Model model = modelBuilder
@@ -147,6 +288,76 @@ public class ActorWithBehaviorTest extends AbstractTestCase{
 		assertEquals(EntersText.class, latestStepRun.get().getMessageClass());
   }
   
+  @Test
+  public void twoActorsInteractAsync() throws InterruptedException {
+		Thread callingThread = Thread.currentThread();
+		List<Thread> reactingThreads = new ArrayList<>();
+		CountDownLatch targetReacted = new CountDownLatch(1);
+		Model targetBehavior = Model.builder()
+			.step(CUSTOMER_ENTERS_TEXT).on(EntersText.class).system(et -> {
+				reactingThreads.add(Thread.currentThread());
+				targetReacted.countDown();
+			})
+		.build();
+		targetActor.withBehavior(targetBehavior);
+
+		Model sourceBehavior = modelBuilder
+			.step(CUSTOMER_ENTERS_TEXT).on(EntersText.class).systemPublish(et -> et).to(targetActor)
+		.build();
+		sourceActor.withBehavior(sourceBehavior).getModelRunner().publishToRecipientsAsync(true);
+		sourceActor.reactTo(entersText());
+
+		assertTrue(targetReacted.await(10, TimeUnit.SECONDS));
+		assertFalse(reactingThreads.contains(callingThread));
+  }
+
+  @Test
+  public void recipientPassesExceptionOfAsyncPublishedMessageToAsyncExceptionHandler() throws InterruptedException {
+		List<Exception> handledExceptions = new ArrayList<>();
+		CountDownLatch exceptionHandled = new CountDownLatch(1);
+		Model targetBehavior = Model.builder()
+			.step(CUSTOMER_ENTERS_TEXT).on(EntersText.class).system(et -> {
+				throw new IllegalStateException(et.value());
+			})
+		.build();
+		targetActor.withBehavior(targetBehavior);
+		targetActor.handleAsyncExceptionsWith(e -> {
+			handledExceptions.add(e);
+			exceptionHandled.countDown();
+		});
+
+		Model sourceBehavior = modelBuilder
+			.step(CUSTOMER_ENTERS_TEXT).on(EntersText.class).systemPublish(et -> et).to(targetActor)
+		.build();
+		sourceActor.withBehavior(sourceBehavior).getModelRunner().publishToRecipientsAsync(true);
+		sourceActor.reactTo(entersText());
+
+		assertTrue(exceptionHandled.await(10, TimeUnit.SECONDS));
+		assertEquals(IllegalStateException.class, handledExceptions.get(0).getClass());
+		assertEquals(TEXT, handledExceptions.get(0).getMessage());
+  }
+
+  @Test
+  public void actorsPublishingAsyncToEachOtherDontBuildUpStack() throws InterruptedException {
+		final int numberOfMessages = 20_000;
+		CountDownLatch done = new CountDownLatch(1);
+		Actor ping = new Actor("Ping");
+		Actor pong = new Actor("Pong");
+		ping.withBehavior(Model.builder()
+			.on(Integer.class).systemPublish(i -> i < numberOfMessages ? i + 1 : "Done").to(pong)
+		.build());
+		pong.withBehavior(Model.builder()
+			.on(Integer.class).systemPublish(i -> i + 1).to(ping)
+			.on(String.class).system(text -> done.countDown())
+		.build());
+		ping.getModelRunner().publishToRecipientsAsync(true);
+		pong.getModelRunner().publishToRecipientsAsync(true);
+
+		ping.tellAsync(0);
+
+		assertTrue(done.await(30, TimeUnit.SECONDS));
+  }
+
   @Test
   public void twoActorsInteractWhenSourceActorIsSpecifiedInTargetStepAs() {
     Actor sourceActorClone = new Actor(sourceActor.getName());
@@ -225,6 +436,60 @@ public class ActorWithBehaviorTest extends AbstractTestCase{
     assertEquals(TEXT.toUpperCase(), partner2Response.get());
   }
   
+  @Test
+  public void twoActorsPublishingToEachOtherForeverThrowInfiniteRepetition() {
+    PingPongActor ping = new PingPongActor();
+    PingPongActor pong = new PingPongActor();
+    ping.publishTo(pong);
+    pong.publishTo(ping);
+
+    try {
+      ping.reactTo(entersText());
+      fail("Expected InfiniteRepetition");
+    } catch (InfiniteRepetition e) {
+      // expected, instead of a StackOverflowError
+    }
+  }
+  
+  @Test
+  public void stepsOfActorsPublishedToCountTowardsMaximumStepsPerMessage() {
+    PingPongActor ping = new PingPongActor();
+    PingPongActor pong = new PingPongActor();
+    ping.publishTo(pong);
+    pong.publishTo(ping);
+    ping.getModelRunner().limitStepsPerMessageTo(100);
+
+    try {
+      ping.reactTo(entersText());
+      fail("Expected InfiniteRepetition");
+    } catch (InfiniteRepetition e) {
+      assertEquals(100, ping.stepsRun + pong.stepsRun);
+    }
+  }
+  
+  private class PingPongActor extends AbstractActor{
+    private AbstractActor partner;
+    private int stepsRun;
+    
+    @Override
+    public Model behavior() {      
+      Model model = Model.builder()
+        .on(EntersText.class).systemPublish(this::passOn).to(partner)
+      .build();
+      
+      return model;
+    }
+    
+    private EntersText passOn(EntersText entersText) {
+      stepsRun++;
+      return entersText;
+    }
+    
+    public void publishTo(AbstractActor partner) {
+      this.partner = partner;
+    }
+  }
+  
   private class Partner1 extends AbstractActor{
     private AbstractActor partner2;
 
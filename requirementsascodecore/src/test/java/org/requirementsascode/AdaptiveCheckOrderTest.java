@@ -0,0 +1,127 @@
+package org.requirementsascode;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class AdaptiveCheckOrderTest extends AbstractTestCase {
+	private int timesConditionEvaluated;
+
+	@Before
+	public void setup() {
+		setupWithRecordingModelRunner();
+		this.modelRunner = new ModelRunner();
+	}
+
+	@Test
+	public void performsChecksInModelOrderByDefault() {
+		modelRunner.run(model());
+		reactToNumbers(2 * AdaptiveCheckOrder.REORDER_INTERVAL);
+
+		assertEquals(2 * AdaptiveCheckOrder.REORDER_INTERVAL, timesConditionEvaluated);
+		assertEquals("", modelRunner.getCheckOrderReport());
+	}
+
+	@Test
+	public void performsChecksInModelOrderWhenSwitchedOff() {
+		modelRunner.adaptCheckOrder().adaptCheckOrder(false).run(model());
+		reactToNumbers(2 * AdaptiveCheckOrder.REORDER_INTERVAL);
+
+		assertEquals(2 * AdaptiveCheckOrder.REORDER_INTERVAL, timesConditionEvaluated);
+		assertEquals("", modelRunner.getCheckOrderReport());
+	}
+
+	@Test
+	public void neverPerformsConditionBeforeStructuralChecks() {
+		modelRunner.adaptCheckOrder().run(model());
+		reactToNumbers(2 * AdaptiveCheckOrder.REORDER_INTERVAL);
+
+		assertEquals(2 * AdaptiveCheckOrder.REORDER_INTERVAL, timesConditionEvaluated);
+		String report = modelRunner.getCheckOrderReport();
+		assertTrue(report, report.startsWith(CUSTOMER_ENTERS_NUMBER + ": actor"));
+		assertTrue(report, report.indexOf("different flow") < report.indexOf("condition"));
+		assertTrue(report, report.indexOf("condition") < report.indexOf("react while"));
+	}
+
+	@Test
+	public void performsRejectingStructuralCheckFirstAfterLearning() {
+		Model model = modelBuilder
+			.useCase(USE_CASE)
+				.basicFlow()
+					.step(CUSTOMER_ENTERS_TEXT).user(EntersText.class).system(displaysEnteredText())
+				.flow(ALTERNATIVE_FLOW).condition(this::isTrueAndCountsEvaluation)
+					.step(CUSTOMER_ENTERS_NUMBER).user(EntersNumber.class).system(displaysEnteredNumber())
+			.build();
+		modelRunner.adaptCheckOrder().run(model);
+		reactToNumbers(2 * AdaptiveCheckOrder.REORDER_INTERVAL);
+
+		assertEquals(1, timesConditionEvaluated);
+		String report = modelRunner.getCheckOrderReport();
+		assertTrue(report, report.startsWith(CUSTOMER_ENTERS_NUMBER + ": different flow (rejects"));
+		assertTrue(report, report.indexOf("actor") < report.indexOf("condition"));
+	}
+
+	@Test
+	public void neverChecksImpureInterruptingConditionBeforeActor() {
+		Actor otherActor = new Actor("Other actor");
+		Model model = modelBuilder
+			.useCase(USE_CASE)
+				.basicFlow()
+					.step(CUSTOMER_ENTERS_NUMBER).as(customer).user(EntersNumber.class).system(displaysEnteredNumber())
+				.flow(ALTERNATIVE_FLOW).anytime().condition(Condition.impure(this::isFalseAndCountsEvaluation))
+					.step(CUSTOMER_ENTERS_NUMBER_AGAIN).as(otherActor).user(EntersNumber.class)
+						.system(displaysEnteredNumber())
+			.build();
+		modelRunner.adaptCheckOrder().run(model).as(otherActor);
+		reactToNumbers(2 * AdaptiveCheckOrder.REORDER_INTERVAL);
+
+		// Only the interrupting step itself evaluates the condition
+		assertEquals(2 * AdaptiveCheckOrder.REORDER_INTERVAL, timesConditionEvaluated);
+		String report = modelRunner.getCheckOrderReport();
+		assertTrue(report, report.startsWith(CUSTOMER_ENTERS_NUMBER + ": actor (rejects 100%"));
+	}
+
+	@Test
+	public void sharesLearnedOrderBetweenRunnersOfModel() {
+		Model model = model();
+		modelRunner.adaptCheckOrder().run(model);
+		reactToNumbers(AdaptiveCheckOrder.REORDER_INTERVAL);
+
+		ModelRunner otherModelRunner = new ModelRunner().adaptCheckOrder();
+		otherModelRunner.run(model);
+
+		assertEquals(modelRunner.getCheckOrderReport(), otherModelRunner.getCheckOrderReport());
+		assertTrue(otherModelRunner.getCheckOrderReport().startsWith(CUSTOMER_ENTERS_NUMBER));
+	}
+
+	private Model model() {
+		Model model = modelBuilder
+			.useCase(USE_CASE)
+				.basicFlow()
+					.step(CUSTOMER_ENTERS_TEXT).user(EntersText.class).system(displaysEnteredText())
+				.flow(ALTERNATIVE_FLOW).condition(this::isTrueAndCountsEvaluation)
+					.step(CUSTOMER_ENTERS_NUMBER).user(EntersNumber.class).system(displaysEnteredNumber())
+						.reactWhile(() -> false)
+			.build();
+		return model;
+	}
+
+	private void reactToNumbers(int numberOfMessages) {
+		EntersNumber entersNumber = entersNumber();
+		for (int i = 0; i < numberOfMessages; i++) {
+			modelRunner.reactTo(entersNumber);
+		}
+	}
+
+	private boolean isTrueAndCountsEvaluation() {
+		timesConditionEvaluated++;
+		return true;
+	}
+
+	private boolean isFalseAndCountsEvaluation() {
+		timesConditionEvaluated++;
+		return false;
+	}
+}
@@ -4,10 +4,18 @@ import org.junit.runner.RunWith;
 import org.junit.runners.Suite;
 import org.junit.runners.Suite.SuiteClasses;
 import org.requirementsascode.builder.BuildModelTest;
+import org.requirementsascode.queue.EventJournalTest;
+import org.requirementsascode.queue.EventQueueTest;
+import org.requirementsascode.queue.ExecutorEventQueueTest;
+import org.requirementsascode.queue.RingBufferEventQueueTest;
 
 @RunWith(Suite.class)
 @SuiteClasses({ BuildModelTest.class, RunStopAndRestartTest.class, FlowTest.class, CanReactToTest.class, ReactToTypesTest.class, FlowlessTest.class,
 	ExceptionsThrownTest.class, ExceptionHandlingTest.class, NonStandardEventHandlingTest.class,
-	IncludesTest.class, RecordingTest.class, ActorWithBehaviorTest.class })
+	IncludesTest.class, RecordingTest.class, ActorWithBehaviorTest.class, CompiledModelTest.class,
+	AllocationTest.class, AdaptiveCheckOrderTest.class, TransitionCacheTest.class,
+	ConcurrentModelRunnerTest.class, PartitionedModelRunnerTest.class, ModelEngineTest.class,
+	SessionStoreTest.class, RingBufferEventQueueTest.class,
+	EventQueueTest.class, ExecutorEventQueueTest.class, EventJournalTest.class })
 public class AllTests {
 }
@@ -0,0 +1,69 @@
+package org.requirementsascode;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assume.assumeTrue;
+
+import java.lang.management.ManagementFactory;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sun.management.ThreadMXBean;
+
+public class AllocationTest extends AbstractTestCase {
+	private static final int WARMUP_ITERATIONS = 200_000;
+	private static final int ITERATIONS = 100_000;
+
+	private ThreadMXBean threadMXBean;
+
+	@Before
+	public void setup() {
+		setupWithRecordingModelRunner();
+		this.modelRunner = new ModelRunner();
+
+		java.lang.management.ThreadMXBean platformThreadMXBean = ManagementFactory.getThreadMXBean();
+		assumeTrue(platformThreadMXBean instanceof ThreadMXBean);
+		this.threadMXBean = (ThreadMXBean) platformThreadMXBean;
+		assumeTrue(threadMXBean.isThreadAllocatedMemorySupported());
+		threadMXBean.setThreadAllocatedMemoryEnabled(true);
+	}
+
+	@Test
+	public void reactingToMessagesDoesntAllocate() {
+		Model model = modelBuilder
+			.useCase(USE_CASE)
+				.basicFlow()
+					.step(CUSTOMER_ENTERS_TEXT).user(EntersText.class).system(displaysEnteredText())
+						.reactWhile(() -> true)
+				.flow(ALTERNATIVE_FLOW).insteadOf(CUSTOMER_ENTERS_TEXT).condition(() -> false)
+					.step(CUSTOMER_ENTERS_ALTERNATIVE_TEXT).user(EntersText.class).system(displaysEnteredText())
+			.useCase(USE_CASE_2)
+				.step(CUSTOMER_ENTERS_NUMBER).on(EntersNumber.class).system(displaysConstantText())
+			.build();
+
+		modelRunner.run(model);
+		EntersText entersText = entersText();
+		EntersNumber entersNumber = entersNumber();
+
+		reactTo(entersText, entersNumber, WARMUP_ITERATIONS);
+		long measurementStart = allocatedBytes();
+		long measurementOverhead = allocatedBytes() - measurementStart;
+
+		long allocatedBytesBefore = allocatedBytes();
+		reactTo(entersText, entersNumber, ITERATIONS);
+		long allocatedBytes = allocatedBytes() - allocatedBytesBefore - measurementOverhead;
+
+		assertEquals(0, allocatedBytes / ITERATIONS);
+	}
+
+	private void reactTo(EntersText entersText, EntersNumber entersNumber, int iterations) {
+		for (int i = 0; i < iterations; i++) {
+			modelRunner.reactTo(entersText);
+			modelRunner.reactTo(entersNumber);
+		}
+	}
+
+	private long allocatedBytes() {
+		return threadMXBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+}
@@ -0,0 +1,180 @@
+package org.requirementsascode;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.Array;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class CompiledModelTest extends AbstractTestCase {
+
+	@Before
+	public void setup() {
+		setupWithRecordingModelRunner();
+	}
+
+	@Test
+	public void assignsStepIdsInModelOrder() {
+		Model model = modelBuilder.useCase(USE_CASE)
+			.basicFlow()
+				.step(CUSTOMER_ENTERS_TEXT).user(EntersText.class).system(displaysEnteredText())
+				.step(CUSTOMER_ENTERS_NUMBER).user(EntersNumber.class).system(displaysEnteredNumber())
+			.build();
+
+		CompiledModel compiledModel = model.compile();
+
+		assertEquals(2, compiledModel.getNumberOfSteps());
+		assertEquals(0, compiledModel.getStepId(model.findUseCase(USE_CASE).findStep(CUSTOMER_ENTERS_TEXT)));
+		assertEquals(1, compiledModel.getStepId(model.findUseCase(USE_CASE).findStep(CUSTOMER_ENTERS_NUMBER)));
+		assertEquals(CUSTOMER_ENTERS_NUMBER, compiledModel.getStep(1).getName());
+	}
+
+	@Test
+	public void mapsNoStepToNull() {
+		Model model = modelBuilder.useCase(USE_CASE)
+			.basicFlow()
+				.step(CUSTOMER_ENTERS_TEXT).user(EntersText.class).system(displaysEnteredText())
+			.build();
+
+		CompiledModel compiledModel = model.compile();
+
+		assertEquals(CompiledModel.NO_STEP, compiledModel.getStepId(null));
+		assertNull(compiledModel.getStep(CompiledModel.NO_STEP));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void throwsExceptionForStepOfOtherModel() {
+		Model model = modelBuilder.useCase(USE_CASE)
+			.basicFlow()
+				.step(CUSTOMER_ENTERS_TEXT).user(EntersText.class).system(displaysEnteredText())
+			.build();
+		Model otherModel = Model.builder().useCase(USE_CASE)
+			.basicFlow()
+				.step(CUSTOMER_ENTERS_TEXT).user(EntersText.class).system(displaysEnteredText())
+			.build();
+
+		model.compile().getStepId(otherModel.findUseCase(USE_CASE).findStep(CUSTOMER_ENTERS_TEXT));
+	}
+
+	@Test
+	public void returnsSameCompiledModelAfterBuild() {
+		Model model = modelBuilder.useCase(USE_CASE)
+			.basicFlow()
+				.step(CUSTOMER_ENTERS_TEXT).user(EntersText.class).system(displaysEnteredText())
+			.build();
+
+		assertTrue(model.isFrozen());
+		assertSame(model.compile(), modelBuilder.build().compile());
+	}
+
+	@Test
+	public void reportsFlowlessStepsForSameMessageClassAsPotentiallyAmbiguous() {
+		Model model = modelBuilder.useCase(USE_CASE)
+			.condition(this::textIsAvailable).step(CUSTOMER_ENTERS_TEXT).user(EntersText.class).system(displaysEnteredText())
+			.condition(this::textIsNotAvailable).step(CUSTOMER_ENTERS_TEXT_AGAIN).user(EntersText.class).system(displaysEnteredText())
+			.step(CUSTOMER_ENTERS_NUMBER).user(EntersNumber.class).system(displaysEnteredNumber())
+			.build();
+
+		List<PotentialAmbiguity> potentialAmbiguities = model.compile().getPotentialAmbiguities();
+
+		assertEquals(1, potentialAmbiguities.size());
+		PotentialAmbiguity potentialAmbiguity = potentialAmbiguities.get(0);
+		assertEquals(EntersText.class, potentialAmbiguity.getMessageClass());
+		assertEquals(CUSTOMER_ENTERS_TEXT, potentialAmbiguity.getFirstStep().getName());
+		assertEquals(CUSTOMER_ENTERS_TEXT_AGAIN, potentialAmbiguity.getSecondStep().getName());
+	}
+
+	@Test
+	public void doesntReportInterruptedStepAsPotentiallyAmbiguous() {
+		Model model = modelBuilder.useCase(USE_CASE)
+			.basicFlow()
+				.step(CUSTOMER_ENTERS_TEXT).user(EntersText.class).system(displaysEnteredText())
+				.step(CUSTOMER_ENTERS_TEXT_AGAIN).user(EntersText.class).system(displaysEnteredText())
+			.flow(ALTERNATIVE_FLOW).insteadOf(CUSTOMER_ENTERS_TEXT_AGAIN).condition(this::textIsAvailable)
+				.step(CUSTOMER_ENTERS_ALTERNATIVE_TEXT).user(EntersText.class).system(displaysEnteredText())
+			.build();
+
+		assertTrue(model.compile().getPotentialAmbiguities().isEmpty());
+	}
+
+	@Test
+	public void doesntReportStepsWithDifferentActorsAsPotentiallyAmbiguous() {
+		Actor otherActor = new Actor("Other actor");
+		modelBuilder.useCase(USE_CASE).as(customer)
+			.step(CUSTOMER_ENTERS_TEXT).user(EntersText.class).system(displaysEnteredText());
+		Model model = modelBuilder.useCase(USE_CASE_2).as(otherActor)
+			.step(CUSTOMER_ENTERS_TEXT_AGAIN).user(EntersText.class).system(displaysEnteredText())
+			.build();
+
+		assertTrue(model.compile().getPotentialAmbiguities().isEmpty());
+	}
+
+	@Test
+	public void sharesTransitionsOfMessageClassesWithSameCandidateSteps() {
+		Model model = modelBuilder.useCase(USE_CASE)
+			.basicFlow()
+				.step(CUSTOMER_ENTERS_TEXT).user(EntersText.class).system(displaysEnteredText())
+			.build();
+		CompiledModel compiledModel = model.compile();
+
+		assertSame(compiledModel.getTransitions(String.class), compiledModel.getTransitions(Integer.class));
+		assertNotSame(compiledModel.getTransitions(EntersText.class), compiledModel.getTransitions(String.class));
+		assertEquals(0, compiledModel.getTransitions(String.class).getStepIds(0).length);
+	}
+
+	@Test
+	public void remembersLimitedNumberOfMessageClassesUnknownToModel() {
+		Model model = modelBuilder.useCase(USE_CASE)
+			.basicFlow()
+				.step(CUSTOMER_ENTERS_TEXT).user(EntersText.class).system(displaysEnteredText())
+			.build();
+		CompiledModel compiledModel = model.compile();
+		assertEquals(1, compiledModel.getNumberOfCachedMessageClasses());
+
+		// Array classes of increasing dimension are distinct message classes
+		Transitions transitionsOfUnknownClass = compiledModel.getTransitions(String.class);
+		for (Class<?> baseClass : Arrays.asList(String.class, Integer.class, Long.class, Double.class, Float.class)) {
+			Class<?> messageClass = baseClass;
+			for (int dimensions = 1; dimensions < 255; dimensions++) {
+				messageClass = Array.newInstance(messageClass, 0).getClass();
+				assertSame(transitionsOfUnknownClass, compiledModel.getTransitions(messageClass));
+			}
+		}
+
+		assertEquals(1 + CompiledModel.MAX_OTHER_MESSAGE_CLASSES, compiledModel.getNumberOfCachedMessageClasses());
+		modelRunner.run(model).reactTo(entersText());
+		assertRecordedStepNames(CUSTOMER_ENTERS_TEXT);
+	}
+
+	@Test
+	public void reactsOnlyToRunActorWithActorMasks() {
+		assertReactsOnlyToRunActorWithNumberOfActors(2);
+	}
+
+	@Test
+	public void reactsOnlyToRunActorWithMoreActorsThanMaskBits() {
+		assertReactsOnlyToRunActorWithNumberOfActors(Long.SIZE + 2);
+	}
+
+	private void assertReactsOnlyToRunActorWithNumberOfActors(int numberOfActors) {
+		for (int i = 0; i < numberOfActors; i++) {
+			modelBuilder.useCase(USE_CASE + " " + i).as(new Actor("Actor " + i))
+				.step("Step " + i).user(EntersText.class).system(displaysEnteredText());
+		}
+		Model model = modelBuilder.build();
+		Actor lastActor = new Actor("Actor " + (numberOfActors - 1));
+
+		modelRunner.run(model).as(customer).reactTo(entersText());
+		assertRecordedStepNames();
+
+		modelRunner.as(lastActor).reactTo(entersText());
+		assertRecordedStepNames("Step " + (numberOfActors - 1));
+	}
+}
@@ -0,0 +1,176 @@
+package org.requirementsascode;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class ConcurrentModelRunnerTest extends AbstractTestCase {
+	private static final int NUMBER_OF_KEYS = 16;
+	private static final int NUMBER_OF_THREADS = 8;
+	private static final int MESSAGES_PER_THREAD_AND_KEY = 1_000;
+
+	private int[] timesHandled;
+
+	@Before
+	public void setup() {
+		setupWithRecordingModelRunner();
+		this.timesHandled = new int[NUMBER_OF_KEYS];
+	}
+
+	@Test
+	public void followsFlowPerKey() {
+		Model model = modelBuilder
+			.useCase(USE_CASE)
+				.basicFlow()
+					.step(CUSTOMER_ENTERS_TEXT).user(KeyedText.class).system(this::handle)
+					.step(CUSTOMER_ENTERS_TEXT_AGAIN).user(KeyedText.class).system(this::handle)
+			.build();
+		ConcurrentModelRunner concurrentModelRunner = new ConcurrentModelRunner(model, ConcurrentModelRunnerTest::keyOf);
+
+		concurrentModelRunner.reactTo(new KeyedText(0));
+		concurrentModelRunner.reactTo(new KeyedText(1));
+		concurrentModelRunner.reactTo(new KeyedText(0));
+
+		assertEquals(CUSTOMER_ENTERS_TEXT_AGAIN, concurrentModelRunner.getLatestStep(0).get().getName());
+		assertEquals(CUSTOMER_ENTERS_TEXT, concurrentModelRunner.getLatestStep(1).get().getName());
+		assertFalse(concurrentModelRunner.getLatestStep(2).isPresent());
+	}
+
+	@Test
+	public void startsFromBeginningAfterKeyHasBeenRemoved() {
+		Model model = modelBuilder
+			.useCase(USE_CASE)
+				.basicFlow()
+					.step(CUSTOMER_ENTERS_TEXT).user(KeyedText.class).system(this::handle)
+					.step(CUSTOMER_ENTERS_TEXT_AGAIN).user(KeyedText.class).system(this::handle)
+			.build();
+		ConcurrentModelRunner concurrentModelRunner = new ConcurrentModelRunner(model, ConcurrentModelRunnerTest::keyOf);
+
+		concurrentModelRunner.reactTo(new KeyedText(0));
+		assertTrue(concurrentModelRunner.remove(0));
+		concurrentModelRunner.reactTo(new KeyedText(0));
+
+		assertEquals(CUSTOMER_ENTERS_TEXT, concurrentModelRunner.getLatestStep(0).get().getName());
+		assertFalse(concurrentModelRunner.remove(1));
+	}
+
+	@Test
+	public void doesntKeepModelRunnerIfSupplierThrowsException() {
+		Model model = modelBuilder
+			.useCase(USE_CASE)
+				.basicFlow()
+					.step(CUSTOMER_ENTERS_TEXT).user(KeyedText.class).system(this::handle)
+			.build();
+		boolean[] isSupplierFailing = { true };
+		ConcurrentModelRunner concurrentModelRunner = new ConcurrentModelRunner(model, ConcurrentModelRunnerTest::keyOf,
+			() -> {
+				if (isSupplierFailing[0]) {
+					throw new IllegalStateException("Supplier fails");
+				}
+				return new ModelRunner();
+			}, 1);
+
+		try {
+			concurrentModelRunner.reactTo(new KeyedText(0));
+			fail("Supplier should have thrown an exception");
+		} catch (IllegalStateException e) {
+			assertFalse(concurrentModelRunner.getLatestStep(0).isPresent());
+		}
+
+		isSupplierFailing[0] = false;
+		concurrentModelRunner.reactTo(new KeyedText(0));
+		assertEquals(CUSTOMER_ENTERS_TEXT, concurrentModelRunner.getLatestStep(0).get().getName());
+	}
+
+	@Test
+	public void doesntKeepModelRunnerIfRunThrowsException() {
+		boolean[] isStartFailing = { true };
+		Model model = modelBuilder
+			.useCase(USE_CASE)
+				.basicFlow()
+					.step(SYSTEM_THROWS_EXCEPTION).system(() -> {
+						if (isStartFailing[0]) {
+							throw new IllegalStateException("Start fails");
+						}
+					})
+					.step(CUSTOMER_ENTERS_TEXT).user(KeyedText.class).system(this::handle)
+			.build();
+		ConcurrentModelRunner concurrentModelRunner = new ConcurrentModelRunner(model, ConcurrentModelRunnerTest::keyOf);
+
+		try {
+			concurrentModelRunner.reactTo(new KeyedText(0));
+			fail("Run should have thrown an exception");
+		} catch (IllegalStateException e) {
+			assertFalse(concurrentModelRunner.getLatestStep(0).isPresent());
+			assertFalse(concurrentModelRunner.remove(0));
+		}
+
+		isStartFailing[0] = false;
+		concurrentModelRunner.reactTo(new KeyedText(0));
+		assertEquals(CUSTOMER_ENTERS_TEXT, concurrentModelRunner.getLatestStep(0).get().getName());
+	}
+
+	@Test
+	public void handlesMessagesWithSameKeyOneAfterTheOther() throws Exception {
+		Model model = modelBuilder
+			.useCase(USE_CASE)
+				.basicFlow()
+					.step(CUSTOMER_ENTERS_TEXT).user(KeyedText.class).system(this::handle).reactWhile(() -> true)
+			.build();
+		ConcurrentModelRunner concurrentModelRunner = new ConcurrentModelRunner(model, ConcurrentModelRunnerTest::keyOf,
+			ModelRunner::new, 4);
+
+		ExecutorService executor = Executors.newFixedThreadPool(NUMBER_OF_THREADS);
+		List<Future<?>> futures = new ArrayList<>();
+		for (int thread = 0; thread < NUMBER_OF_THREADS; thread++) {
+			futures.add(executor.submit(() -> {
+				for (int i = 0; i < MESSAGES_PER_THREAD_AND_KEY; i++) {
+					for (int key = 0; key < NUMBER_OF_KEYS; key++) {
+						concurrentModelRunner.reactTo(new KeyedText(key));
+					}
+				}
+			}));
+		}
+		for (Future<?> future : futures) {
+			future.get();
+		}
+		executor.shutdown();
+		executor.awaitTermination(10, TimeUnit.SECONDS);
+
+		for (int key = 0; key < NUMBER_OF_KEYS; key++) {
+			assertEquals(NUMBER_OF_THREADS * MESSAGES_PER_THREAD_AND_KEY, timesHandled[key]);
+		}
+	}
+
+	private void handle(KeyedText keyedText) {
+		// Not synchronized on purpose: messages with the same key must not overlap
+		timesHandled[keyedText.key()]++;
+	}
+
+	private static Object keyOf(Object message) {
+		return ((KeyedText) message).key();
+	}
+
+	private static class KeyedText {
+		private final int key;
+
+		KeyedText(int key) {
+			this.key = key;
+		}
+
+		int key() {
+			return key;
+		}
+	}
+}
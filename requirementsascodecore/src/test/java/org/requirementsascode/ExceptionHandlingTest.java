@@ -2,10 +2,15 @@ package org.requirementsascode;
 
 import static org.junit.Assert.assertEquals;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
 import org.junit.Before;
 import org.junit.Test;
 
 public class ExceptionHandlingTest extends AbstractTestCase{
+	private static final String SYSTEM_HANDLES_NESTED_EXCEPTION = "System handles nested exception";
 
 	@Before
 	public void setup() {
@@ -73,4 +78,66 @@ public class ExceptionHandlingTest extends AbstractTestCase{
 		
 		assertRecordedStepNames(SYSTEM_DISPLAYS_TEXT, SYSTEM_THROWS_EXCEPTION, SYSTEM_HANDLES_EXCEPTION);
 	}
+
+	@Test
+	public void handlesExceptionThrownWhileHandlingException() {
+		Model model = 
+			modelBuilder.useCase(USE_CASE)
+				.basicFlow()
+					.step(SYSTEM_THROWS_EXCEPTION).system(throwsArrayIndexOutOfBoundsException())
+				.flow(ALTERNATIVE_FLOW).after(SYSTEM_THROWS_EXCEPTION)
+					.step(SYSTEM_HANDLES_EXCEPTION).on(ArrayIndexOutOfBoundsException.class).system(e -> {
+						throw new IllegalStateException(e);
+					})
+				.flow(ALTERNATIVE_FLOW_2).after(SYSTEM_HANDLES_EXCEPTION)
+					.step(SYSTEM_HANDLES_NESTED_EXCEPTION).on(IllegalStateException.class).system(e -> {})
+			.build();
+		
+		modelRunner.run(model);
+		
+		assertRecordedStepNames(SYSTEM_THROWS_EXCEPTION, SYSTEM_HANDLES_EXCEPTION, SYSTEM_HANDLES_NESTED_EXCEPTION);
+	}
+	
+	@Test(expected = IllegalStateException.class)
+	public void rethrowsUnhandledExceptionThrownWhileHandlingException() {
+		Model model = 
+			modelBuilder.useCase(USE_CASE)
+				.basicFlow()
+					.step(SYSTEM_THROWS_EXCEPTION).system(throwsArrayIndexOutOfBoundsException())
+				.flow(ALTERNATIVE_FLOW).after(SYSTEM_THROWS_EXCEPTION)
+					.step(SYSTEM_HANDLES_EXCEPTION).on(ArrayIndexOutOfBoundsException.class).system(e -> {
+						throw new IllegalStateException(e);
+					})
+			.build();
+		
+		modelRunner.run(model);
+	}
+	
+	@Test
+	public void reactsToExceptionAfterHandleExceptionReturns() {
+		List<String> latestStepNamesInHandleException = new ArrayList<>();
+		ModelRunner modelRunner = new ModelRunner() {
+			@Override
+			protected void handleException(Exception e) {
+				super.handleException(e);
+				latestStepNamesInHandleException.add(getLatestStep().get().getName());
+			}
+		};
+		Model model = 
+			modelBuilder.useCase(USE_CASE)
+				.basicFlow()
+					.step(SYSTEM_THROWS_EXCEPTION).system(throwsArrayIndexOutOfBoundsException())
+				.flow(ALTERNATIVE_FLOW).after(SYSTEM_THROWS_EXCEPTION)
+					.step(SYSTEM_HANDLES_EXCEPTION).on(ArrayIndexOutOfBoundsException.class).system(e -> {
+						throw new IllegalStateException(e);
+					})
+				.flow(ALTERNATIVE_FLOW_2).after(SYSTEM_HANDLES_EXCEPTION)
+					.step(SYSTEM_HANDLES_NESTED_EXCEPTION).on(IllegalStateException.class).system(e -> {})
+			.build();
+		
+		modelRunner.run(model);
+		
+		assertEquals(Arrays.asList(SYSTEM_THROWS_EXCEPTION, SYSTEM_HANDLES_EXCEPTION), latestStepNamesInHandleException);
+		assertEquals(SYSTEM_HANDLES_NESTED_EXCEPTION, modelRunner.getLatestStep().get().getName());
+	}
 }
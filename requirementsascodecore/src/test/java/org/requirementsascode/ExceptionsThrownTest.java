@@ -1,5 +1,8 @@
 package org.requirementsascode;
 
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
@@ -7,6 +10,7 @@ import org.junit.rules.ExpectedException;
 import org.requirementsascode.exception.ElementAlreadyInModel;
 import org.requirementsascode.exception.InfiniteRepetition;
 import org.requirementsascode.exception.MissingUseCaseStepPart;
+import org.requirementsascode.exception.ModelIsFrozen;
 import org.requirementsascode.exception.MoreThanOneStepCanReact;
 import org.requirementsascode.exception.NestedCallOfReactTo;
 import org.requirementsascode.exception.NoSuchElementInModel;
@@ -116,6 +120,20 @@ public class ExceptionsThrownTest extends AbstractTestCase {
 		modelRunner.run(model);
 	}
 
+	@Test
+	public void throwsExceptionWhenMoreStepsThanAllowedAreRunForMessage() {
+		thrown.expect(InfiniteRepetition.class);
+		thrown.expectMessage(SYSTEM_DISPLAYS_TEXT);
+
+		Model model = modelBuilder.useCase(USE_CASE)
+			.basicFlow()
+				.step(CUSTOMER_ENTERS_TEXT).user(EntersText.class).system(displaysEnteredText())
+				.step(SYSTEM_DISPLAYS_TEXT).system(displaysConstantText()).reactWhile(() -> true)
+			.build();
+
+		modelRunner.limitStepsPerMessageTo(3).run(model).reactTo(entersText());
+	}
+
   @Test
   public void throwsExceptionWhenReactToIsCalledFromSystemReaction() {
     thrown.expect(NestedCallOfReactTo.class);
@@ -200,4 +218,47 @@ public class ExceptionsThrownTest extends AbstractTestCase {
 
 		modelRunner.run(model);
 	}
+
+	@Test
+	public void throwsExceptionIfModelIsChangedAfterBuild() {
+		thrown.expect(ModelIsFrozen.class);
+
+		modelBuilder.useCase(USE_CASE)
+		  .basicFlow()
+		    .step(CUSTOMER_ENTERS_TEXT).user(EntersText.class).system(displaysEnteredText());
+		modelBuilder.build();
+
+		modelBuilder.useCase(USE_CASE)
+		  .basicFlow()
+		    .step(CUSTOMER_ENTERS_NUMBER).user(EntersNumber.class).system(displaysEnteredNumber());
+	}
+
+	@Test
+	public void throwsExceptionIfUseCaseIsAddedAfterBuild() {
+		thrown.expect(ModelIsFrozen.class);
+		thrown.expectMessage("Create a new model with Model.builder() instead");
+
+		modelBuilder.useCase(USE_CASE)
+		  .basicFlow()
+		    .step(CUSTOMER_ENTERS_TEXT).user(EntersText.class).system(displaysEnteredText());
+		modelBuilder.build();
+
+		// Extending the model after building it, and building it again, isn't possible anymore
+		modelBuilder.useCase(USE_CASE_2)
+		  .basicFlow()
+		    .step(CUSTOMER_ENTERS_NUMBER).user(EntersNumber.class).system(displaysEnteredNumber());
+		modelBuilder.build();
+	}
+
+	@Test
+	public void returnsSameFrozenModelIfBuiltTwice() {
+		modelBuilder.useCase(USE_CASE)
+		  .basicFlow()
+		    .step(CUSTOMER_ENTERS_TEXT).user(EntersText.class).system(displaysEnteredText());
+
+		Model model = modelBuilder.build();
+
+		assertSame(model, modelBuilder.build());
+		assertTrue(model.isFrozen());
+	}
 }
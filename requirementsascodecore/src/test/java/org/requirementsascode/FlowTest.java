@@ -18,6 +18,7 @@ import org.requirementsascode.systemreaction.IgnoresIt;
 public class FlowTest extends AbstractTestCase{
 	private Actor secondActor;
 	private int timesDisplayed;
+	private int timesConditionEvaluated;
 		
 	@Before
 	public void setup() {
@@ -670,6 +671,53 @@ public class FlowTest extends AbstractTestCase{
 		reactToAndAssertEvents(entersText(), entersNumber());		
 	}
 	
+	@Test
+	public void reactsWhileConditionIsTrueForLongAutonomousLoop() {
+		Model model = modelBuilder
+			.useCase(USE_CASE)
+				.basicFlow()
+					.step(SYSTEM_DISPLAYS_TEXT).system(() -> timesDisplayed++)
+						.reactWhile(() -> timesDisplayed < 50_000)
+			.build();
+
+		modelRunner.run(model);
+
+		assertEquals(50_000, timesDisplayed);
+	}
+
+	@Test
+	public void evaluatesSharedConditionOncePerMessage() {
+		assertTimesConditionEvaluated(this::isFalseAndCountsEvaluation, 1);
+	}
+
+	@Test
+	public void evaluatesSharedImpureConditionForEachStep() {
+		assertTimesConditionEvaluated(Condition.impure(this::isFalseAndCountsEvaluation), 4);
+	}
+
+	private void assertTimesConditionEvaluated(Condition sharedCondition, int expectedTimesEvaluated) {
+		Model model = modelBuilder
+			.useCase(USE_CASE)
+				.basicFlow()
+					.step(CUSTOMER_ENTERS_TEXT).user(EntersText.class).system(displaysEnteredText())
+					.step(CUSTOMER_ENTERS_TEXT_AGAIN).user(EntersText.class).system(displaysEnteredText())
+				.flow(ALTERNATIVE_FLOW).insteadOf(CUSTOMER_ENTERS_TEXT_AGAIN).condition(sharedCondition)
+					.step(CUSTOMER_ENTERS_ALTERNATIVE_TEXT).user(EntersText.class).system(displaysEnteredText())
+				.flow(ALTERNATIVE_FLOW_2).insteadOf(CUSTOMER_ENTERS_TEXT_AGAIN).condition(sharedCondition)
+					.step(THIS_STEP_SHOULD_BE_SKIPPED).user(EntersText.class).system(displaysEnteredText())
+			.build();
+
+		modelRunner.run(model).reactTo(entersText(), entersText());
+
+		assertRecordedStepNames(CUSTOMER_ENTERS_TEXT, CUSTOMER_ENTERS_TEXT_AGAIN);
+		assertEquals(expectedTimesEvaluated, timesConditionEvaluated);
+	}
+
+	private boolean isFalseAndCountsEvaluation() {
+		timesConditionEvaluated++;
+		return false;
+	}
+
 	@Test
 	public void doesNotReactWhileConditionNotFulfilled() {		
 		Model model = modelBuilder
@@ -0,0 +1,172 @@
+package org.requirementsascode;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.requirementsascode.exception.NestedCallOfReactTo;
+
+public class ModelEngineTest extends AbstractTestCase {
+	private static final int NUMBER_OF_THREADS = 4;
+	private static final int SESSIONS_PER_THREAD = 1_000;
+
+	private Model model;
+
+	@Before
+	public void setup() {
+		setupWithRecordingModelRunner();
+		this.model = modelBuilder
+			.useCase(USE_CASE)
+				.basicFlow()
+					.step(CUSTOMER_ENTERS_TEXT).user(EntersText.class).system(displaysEnteredText())
+					.step(CUSTOMER_ENTERS_NUMBER).user(EntersNumber.class).system(displaysEnteredNumber())
+			.build();
+	}
+
+	@Test
+	public void runsSessionsIndependently() {
+		ModelEngine modelEngine = new ModelEngine(model);
+		SessionState firstSession = modelEngine.start();
+		SessionState secondSession = modelEngine.start();
+
+		modelEngine.reactTo(firstSession, entersText());
+		modelEngine.reactTo(firstSession, entersNumber());
+		modelEngine.reactTo(secondSession, entersText());
+
+		assertEquals(CUSTOMER_ENTERS_NUMBER, modelEngine.getLatestStep(firstSession).get().getName());
+		assertEquals(CUSTOMER_ENTERS_TEXT, modelEngine.getLatestStep(secondSession).get().getName());
+		assertEquals(2, firstSession.getRecordingCursor());
+		assertEquals(1, secondSession.getRecordingCursor());
+	}
+
+	@Test
+	public void triggersAutonomousSystemReactionWhenStarting() {
+		Model model = Model.builder()
+			.useCase(USE_CASE)
+				.basicFlow()
+					.step(SYSTEM_DISPLAYS_TEXT).system(displaysConstantText())
+					.step(CUSTOMER_ENTERS_TEXT).user(EntersText.class).system(displaysEnteredText())
+			.build();
+		ModelEngine modelEngine = new ModelEngine(model);
+
+		SessionState session = modelEngine.start();
+
+		assertEquals(SYSTEM_DISPLAYS_TEXT, modelEngine.getLatestStep(session).get().getName());
+	}
+
+	@Test
+	public void continuesRestoredSession() {
+		ModelEngine modelEngine = new ModelEngine(model);
+		SessionState session = modelEngine.start();
+		modelEngine.reactTo(session, entersText());
+
+		SessionState restoredSession = SessionState.restore(session.getLatestStepId(), session.isRunning(),
+			session.getRecordingCursor());
+		modelEngine.reactTo(restoredSession, entersNumber());
+
+		assertEquals(CUSTOMER_ENTERS_NUMBER, modelEngine.getLatestStep(restoredSession).get().getName());
+		assertEquals(CUSTOMER_ENTERS_TEXT, modelEngine.getLatestStep(session).get().getName());
+	}
+
+	@Test
+	public void doesNotReactWhenStopped() {
+		ModelEngine modelEngine = new ModelEngine(model);
+		SessionState session = modelEngine.start();
+
+		modelEngine.stop(session);
+		modelEngine.reactTo(session, entersText());
+
+		assertFalse(session.isRunning());
+		assertFalse(modelEngine.getLatestStep(session).isPresent());
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void throwsExceptionIfConfiguredAfterFirstSession() {
+		ModelEngine modelEngine = new ModelEngine(model);
+		modelEngine.start();
+
+		modelEngine.adaptCheckOrder(false);
+	}
+
+	@Test(expected = NestedCallOfReactTo.class)
+	public void throwsExceptionIfSystemReactionReactsToMessageOfOtherSession() {
+		ModelEngine[] modelEngine = new ModelEngine[1];
+		SessionState otherSession = SessionState.restore(CompiledModel.NO_STEP, true, 0);
+		Model model = Model.builder()
+			.useCase(USE_CASE)
+				.basicFlow()
+					.step(CUSTOMER_ENTERS_TEXT).user(EntersText.class)
+						.system(entersText -> modelEngine[0].reactTo(otherSession, entersText))
+			.build();
+		modelEngine[0] = new ModelEngine(model);
+
+		modelEngine[0].reactTo(modelEngine[0].start(), entersText());
+	}
+
+	@Test
+	public void runsSessionsOfStore() {
+		ModelEngine modelEngine = new ModelEngine(model);
+		SessionStore sessionStore = SessionStore.allocateDirect(SESSIONS_PER_THREAD);
+
+		for (long sessionId = 0; sessionId < SESSIONS_PER_THREAD; sessionId++) {
+			modelEngine.reactTo(sessionStore, sessionId, entersText());
+		}
+		modelEngine.reactTo(sessionStore, 0, entersNumber());
+
+		assertEquals(SESSIONS_PER_THREAD, sessionStore.size());
+		assertEquals(CUSTOMER_ENTERS_NUMBER, modelEngine.getLatestStep(sessionStore.get(0).get()).get().getName());
+		assertEquals(CUSTOMER_ENTERS_TEXT, modelEngine.getLatestStep(sessionStore.get(1).get()).get().getName());
+		assertEquals(2, sessionStore.get(0).get().getRecordingCursor());
+	}
+
+	@Test
+	public void restartsSessionOfStore() {
+		ModelEngine modelEngine = new ModelEngine(model);
+		SessionStore sessionStore = SessionStore.allocateDirect(1);
+		modelEngine.reactTo(sessionStore, 42, entersText());
+
+		modelEngine.start(sessionStore, 42);
+
+		assertFalse(modelEngine.getLatestStep(sessionStore.get(42).get()).isPresent());
+	}
+
+	@Test
+	public void runsSessionsOnSeveralThreads() throws Exception {
+		ModelEngine modelEngine = new ModelEngine(model);
+
+		ExecutorService executor = Executors.newFixedThreadPool(NUMBER_OF_THREADS);
+		List<Future<List<SessionState>>> futures = new ArrayList<>();
+		for (int thread = 0; thread < NUMBER_OF_THREADS; thread++) {
+			futures.add(executor.submit(() -> {
+				List<SessionState> sessions = new ArrayList<>();
+				for (int i = 0; i < SESSIONS_PER_THREAD; i++) {
+					SessionState session = modelEngine.start();
+					modelEngine.reactTo(session, new EntersText(TEXT));
+					sessions.add(session);
+				}
+				for (SessionState session : sessions) {
+					modelEngine.reactTo(session, new EntersNumber(1));
+				}
+				return sessions;
+			}));
+		}
+
+		for (Future<List<SessionState>> future : futures) {
+			for (SessionState session : future.get()) {
+				assertEquals(CUSTOMER_ENTERS_NUMBER, modelEngine.getLatestStep(session).get().getName());
+				assertTrue(session.isRunning());
+			}
+		}
+		executor.shutdown();
+		executor.awaitTermination(10, TimeUnit.SECONDS);
+	}
+}
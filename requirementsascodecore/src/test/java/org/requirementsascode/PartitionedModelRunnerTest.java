@@ -0,0 +1,264 @@
+package org.requirementsascode;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class PartitionedModelRunnerTest extends AbstractTestCase {
+	private static final int NUMBER_OF_KEYS = 16;
+	private static final int NUMBER_OF_THREADS = 4;
+	private static final int MESSAGES_PER_THREAD_AND_KEY = 500;
+
+	private PartitionedModelRunner partitionedModelRunner;
+	private List<List<Integer>> handledMessages;
+
+	@Before
+	public void setup() {
+		setupWithRecordingModelRunner();
+		this.handledMessages = new ArrayList<>();
+		for (int key = 0; key < NUMBER_OF_KEYS; key++) {
+			handledMessages.add(new ArrayList<>());
+		}
+	}
+
+	@After
+	public void teardown() {
+		if (partitionedModelRunner != null) {
+			partitionedModelRunner.stop();
+		}
+	}
+
+	@Test
+	public void followsFlowPerKey() throws Exception {
+		Model model = modelBuilder
+			.useCase(USE_CASE)
+				.basicFlow()
+					.step(CUSTOMER_ENTERS_TEXT).user(KeyedMessage.class).system(this::handle)
+					.step(CUSTOMER_ENTERS_TEXT_AGAIN).user(KeyedMessage.class).system(this::handle)
+			.build();
+		partitionedModelRunner = new PartitionedModelRunner(model, PartitionedModelRunnerTest::keyOf,
+			ModelRunner::new, 2, 16);
+
+		partitionedModelRunner.tellAsync(new KeyedMessage(0, 0));
+		partitionedModelRunner.tellAsync(new KeyedMessage(1, 0));
+		partitionedModelRunner.tellAsync(new KeyedMessage(0, 1));
+
+		assertEquals(CUSTOMER_ENTERS_TEXT_AGAIN, latestStepNameOf(0));
+		assertEquals(CUSTOMER_ENTERS_TEXT, latestStepNameOf(1));
+		assertFalse(partitionedModelRunner.getLatestStep(2).get(10, TimeUnit.SECONDS).isPresent());
+	}
+
+	@Test
+	public void startsFromBeginningAfterKeyHasBeenRemoved() throws Exception {
+		Model model = modelBuilder
+			.useCase(USE_CASE)
+				.basicFlow()
+					.step(CUSTOMER_ENTERS_TEXT).user(KeyedMessage.class).system(this::handle)
+					.step(CUSTOMER_ENTERS_TEXT_AGAIN).user(KeyedMessage.class).system(this::handle)
+			.build();
+		partitionedModelRunner = new PartitionedModelRunner(model, PartitionedModelRunnerTest::keyOf);
+
+		partitionedModelRunner.tellAsync(new KeyedMessage(0, 0));
+		assertTrue(partitionedModelRunner.remove(0).get(10, TimeUnit.SECONDS));
+		partitionedModelRunner.tellAsync(new KeyedMessage(0, 1));
+
+		assertEquals(CUSTOMER_ENTERS_TEXT, latestStepNameOf(0));
+		assertFalse(partitionedModelRunner.remove(1).get(10, TimeUnit.SECONDS));
+	}
+
+	@Test
+	public void handlesMessagesWithSameKeyInOrder() throws Exception {
+		Model model = modelBuilder
+			.useCase(USE_CASE)
+				.basicFlow()
+					.step(CUSTOMER_ENTERS_TEXT).user(KeyedMessage.class).system(this::handle).reactWhile(() -> true)
+			.build();
+		partitionedModelRunner = new PartitionedModelRunner(model, PartitionedModelRunnerTest::keyOf,
+			ModelRunner::new, 4, 64);
+
+		// Each thread sends its own keys, so that the order per key is defined
+		ExecutorService executor = Executors.newFixedThreadPool(NUMBER_OF_THREADS);
+		List<Future<?>> futures = new ArrayList<>();
+		for (int thread = 0; thread < NUMBER_OF_THREADS; thread++) {
+			final int firstKey = thread;
+			futures.add(executor.submit(() -> {
+				for (int i = 0; i < MESSAGES_PER_THREAD_AND_KEY; i++) {
+					for (int key = firstKey; key < NUMBER_OF_KEYS; key += NUMBER_OF_THREADS) {
+						partitionedModelRunner.tellAsync(new KeyedMessage(key, i));
+					}
+				}
+			}));
+		}
+		for (Future<?> future : futures) {
+			future.get();
+		}
+		executor.shutdown();
+		executor.awaitTermination(10, TimeUnit.SECONDS);
+
+		for (int key = 0; key < NUMBER_OF_KEYS; key++) {
+			partitionedModelRunner.getLatestStep(key).get(10, TimeUnit.SECONDS);
+			List<Integer> expectedMessages = new ArrayList<>();
+			for (int i = 0; i < MESSAGES_PER_THREAD_AND_KEY; i++) {
+				expectedMessages.add(i);
+			}
+			assertEquals(expectedMessages, handledMessages.get(key));
+		}
+	}
+
+	@Test
+	public void completesFutureExceptionallyIfReactionThrowsException() throws Exception {
+		Model model = modelBuilder
+			.useCase(USE_CASE)
+				.basicFlow()
+					.step(CUSTOMER_ENTERS_TEXT).user(KeyedMessage.class).system(message -> {
+						throw new IllegalStateException();
+					})
+			.build();
+		partitionedModelRunner = new PartitionedModelRunner(model, PartitionedModelRunnerTest::keyOf);
+
+		try {
+			partitionedModelRunner.askAsync(new KeyedMessage(0, 0)).get(10, TimeUnit.SECONDS);
+		} catch (ExecutionException e) {
+			assertEquals(IllegalStateException.class, e.getCause().getClass());
+			return;
+		}
+		throw new AssertionError("Future should have completed exceptionally");
+	}
+
+	@Test
+	public void survivesErrorThrownByReaction() throws Exception {
+		List<Throwable> uncaughtThrowables = new CopyOnWriteArrayList<>();
+		CountDownLatch uncaughtLatch = new CountDownLatch(1);
+		Model model = modelBuilder
+			.useCase(USE_CASE)
+				.basicFlow()
+					.step(CUSTOMER_ENTERS_TEXT).user(KeyedMessage.class).system(message -> {
+						Thread.currentThread().setUncaughtExceptionHandler((thread, throwable) -> {
+							uncaughtThrowables.add(throwable);
+							uncaughtLatch.countDown();
+						});
+						throw new AssertionError();
+					})
+					.step(CUSTOMER_ENTERS_TEXT_AGAIN).user(KeyedMessage.class).system(this::handle)
+			.build();
+		partitionedModelRunner = new PartitionedModelRunner(model, PartitionedModelRunnerTest::keyOf,
+			ModelRunner::new, 1, 16);
+
+		try {
+			partitionedModelRunner.askAsync(new KeyedMessage(0, 0)).get(10, TimeUnit.SECONDS);
+			throw new IllegalStateException("Future should have completed exceptionally");
+		} catch (ExecutionException e) {
+			assertEquals(AssertionError.class, e.getCause().getClass());
+		}
+		assertTrue(uncaughtLatch.await(10, TimeUnit.SECONDS));
+		assertEquals(1, uncaughtThrowables.size());
+		assertEquals(AssertionError.class, uncaughtThrowables.get(0).getClass());
+
+		partitionedModelRunner.askAsync(new KeyedMessage(0, 1)).get(10, TimeUnit.SECONDS);
+
+		assertEquals(CUSTOMER_ENTERS_TEXT_AGAIN, latestStepNameOf(0));
+	}
+
+	@Test
+	public void reactionPutsMessagesForOwnPartitionWithoutWaiting() throws Exception {
+		final int numberOfMessages = 100;
+		Model model = modelBuilder
+			.useCase(USE_CASE)
+				.basicFlow()
+					.step(CUSTOMER_ENTERS_TEXT).user(KeyedMessage.class).system(message -> {
+						handle(message);
+						// The queue has room for a single message only
+						for (int i = 1; i < numberOfMessages; i++) {
+							partitionedModelRunner.tellAsync(new KeyedMessage(0, i));
+						}
+					})
+					.step(CUSTOMER_ENTERS_TEXT_AGAIN).user(KeyedMessage.class).system(this::handle)
+						.reactWhile(() -> true)
+			.build();
+		partitionedModelRunner = new PartitionedModelRunner(model, PartitionedModelRunnerTest::keyOf,
+			ModelRunner::new, 1, 1);
+
+		partitionedModelRunner.tellAsync(new KeyedMessage(0, 0));
+		partitionedModelRunner.getLatestStep(0).get(10, TimeUnit.SECONDS);
+
+		List<Integer> expectedMessages = new ArrayList<>();
+		for (int i = 0; i < numberOfMessages; i++) {
+			expectedMessages.add(i);
+		}
+		assertEquals(expectedMessages, handledMessages.get(0));
+	}
+
+	@Test
+	public void doesntKeepModelRunnerIfRunThrowsException() throws Exception {
+		boolean[] isStartFailing = { true };
+		Model model = modelBuilder
+			.useCase(USE_CASE)
+				.basicFlow()
+					.step(SYSTEM_THROWS_EXCEPTION).system(() -> {
+						if (isStartFailing[0]) {
+							throw new IllegalStateException("Start fails");
+						}
+					})
+					.step(CUSTOMER_ENTERS_TEXT).user(KeyedMessage.class).system(this::handle)
+			.build();
+		partitionedModelRunner = new PartitionedModelRunner(model, PartitionedModelRunnerTest::keyOf,
+			ModelRunner::new, 1, 16);
+
+		try {
+			partitionedModelRunner.askAsync(new KeyedMessage(0, 0)).get(10, TimeUnit.SECONDS);
+			throw new AssertionError("Future should have completed exceptionally");
+		} catch (ExecutionException e) {
+			assertEquals(IllegalStateException.class, e.getCause().getClass());
+		}
+		assertFalse(partitionedModelRunner.getLatestStep(0).get(10, TimeUnit.SECONDS).isPresent());
+
+		isStartFailing[0] = false;
+		partitionedModelRunner.tellAsync(new KeyedMessage(0, 1));
+		assertEquals(CUSTOMER_ENTERS_TEXT, latestStepNameOf(0));
+	}
+
+	private String latestStepNameOf(Object key) throws Exception {
+		return partitionedModelRunner.getLatestStep(key).get(10, TimeUnit.SECONDS).get().getName();
+	}
+
+	private void handle(KeyedMessage keyedMessage) {
+		// Not synchronized on purpose: only the partition of the key handles it
+		handledMessages.get(keyedMessage.key()).add(keyedMessage.number());
+	}
+
+	private static Object keyOf(Object message) {
+		return ((KeyedMessage) message).key();
+	}
+
+	private static class KeyedMessage {
+		private final int key;
+		private final int number;
+
+		KeyedMessage(int key, int number) {
+			this.key = key;
+			this.number = number;
+		}
+
+		int key() {
+			return key;
+		}
+
+		int number() {
+			return number;
+		}
+	}
+}
@@ -0,0 +1,101 @@
+package org.requirementsascode;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class SessionStoreTest {
+	private static final int CAPACITY = 10_000;
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	private SessionStore sessionStore;
+
+	@Before
+	public void setup() {
+		this.sessionStore = SessionStore.allocateDirect(CAPACITY);
+	}
+
+	@Test
+	public void returnsStoredState() {
+		sessionStore.put(42, SessionState.restore(3, true, 7));
+		sessionStore.put(-1, SessionState.restore(CompiledModel.NO_STEP, false, 0));
+
+		assertState(3, true, 7, sessionStore.get(42).get());
+		assertState(CompiledModel.NO_STEP, false, 0, sessionStore.get(-1).get());
+		assertFalse(sessionStore.get(0).isPresent());
+		assertEquals(2, sessionStore.size());
+	}
+
+	@Test
+	public void replacesStoredState() {
+		sessionStore.put(42, SessionState.restore(3, true, 7));
+		sessionStore.put(42, SessionState.restore(4, false, 8));
+
+		assertState(4, false, 8, sessionStore.get(42).get());
+		assertEquals(1, sessionStore.size());
+	}
+
+	@Test
+	public void findsRemainingSessionsAfterRemovingOthers() {
+		for (int sessionId = 0; sessionId < CAPACITY; sessionId++) {
+			sessionStore.put(sessionId, SessionState.restore(sessionId % 100, true, sessionId));
+		}
+		for (int sessionId = 0; sessionId < CAPACITY; sessionId += 2) {
+			assertTrue(sessionStore.remove(sessionId));
+		}
+
+		assertEquals(CAPACITY / 2, sessionStore.size());
+		for (int sessionId = 0; sessionId < CAPACITY; sessionId++) {
+			boolean isRemoved = sessionId % 2 == 0;
+			assertEquals(!isRemoved, sessionStore.get(sessionId).isPresent());
+		}
+		assertState(99, true, 9_999, sessionStore.get(9_999).get());
+		assertFalse(sessionStore.remove(0));
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void throwsExceptionWhenFull() {
+		SessionStore sessionStore = SessionStore.allocateDirect(1);
+		for (int sessionId = 0; sessionId < 1024; sessionId++) {
+			sessionStore.put(sessionId, SessionState.restore(0, true, 0));
+		}
+	}
+
+	@Test
+	public void keepsStateInMappedFile() throws IOException {
+		Path file = new File(temporaryFolder.getRoot(), "sessions").toPath();
+		SessionStore mappedStore = SessionStore.map(file, CAPACITY);
+		mappedStore.put(42, SessionState.restore(3, true, 7));
+		mappedStore.force();
+
+		SessionStore reopenedStore = SessionStore.map(file, CAPACITY);
+
+		assertState(3, true, 7, reopenedStore.get(42).get());
+		assertEquals(1, reopenedStore.size());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void throwsExceptionIfMappedFileHasOtherCapacity() throws IOException {
+		Path file = new File(temporaryFolder.getRoot(), "sessions").toPath();
+		SessionStore.map(file, CAPACITY);
+
+		SessionStore.map(file, 10 * CAPACITY);
+	}
+
+	private void assertState(int latestStepId, boolean isRunning, int recordingCursor, SessionState sessionState) {
+		assertEquals(latestStepId, sessionState.getLatestStepId());
+		assertEquals(isRunning, sessionState.isRunning());
+		assertEquals(recordingCursor, sessionState.getRecordingCursor());
+	}
+}
@@ -0,0 +1,64 @@
+package org.requirementsascode;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class TransitionCacheTest extends AbstractTestCase {
+	private CompiledModel compiledModel;
+	private TransitionCache transitionCache;
+
+	@Before
+	public void setup() {
+		setupWithRecordingModelRunner();
+		Model model = modelBuilder.useCase(USE_CASE)
+			.basicFlow()
+				.step(CUSTOMER_ENTERS_TEXT).user(EntersText.class).system(displaysEnteredText())
+				.step(CUSTOMER_ENTERS_NUMBER).user(EntersNumber.class).system(displaysEnteredNumber())
+			.build();
+		this.compiledModel = model.compile();
+		this.transitionCache = new TransitionCache();
+	}
+
+	@Test
+	public void missLooksUpTransitionsInCompiledModel() {
+		assertFalse(transitionCache.isCached(EntersText.class));
+
+		Transitions transitions = transitionCache.getTransitions(compiledModel, EntersText.class);
+
+		assertSame(compiledModel.getTransitions(EntersText.class), transitions);
+		assertTrue(transitionCache.isCached(EntersText.class));
+	}
+
+	@Test
+	public void hitReturnsCachedTransitions() {
+		Transitions transitions = transitionCache.getTransitions(compiledModel, EntersText.class);
+
+		assertSame(transitions, transitionCache.getTransitions(compiledModel, EntersText.class));
+		assertTrue(transitionCache.isCached(EntersText.class));
+	}
+
+	@Test
+	public void replacesCachedTransitionsWhenMessageClassChanges() {
+		transitionCache.getTransitions(compiledModel, EntersText.class);
+
+		Transitions transitions = transitionCache.getTransitions(compiledModel, EntersNumber.class);
+
+		assertSame(compiledModel.getTransitions(EntersNumber.class), transitions);
+		assertFalse(transitionCache.isCached(EntersText.class));
+		assertTrue(transitionCache.isCached(EntersNumber.class));
+	}
+
+	@Test
+	public void looksUpTransitionsAgainWhenCompiledModelChanges() {
+		transitionCache.getTransitions(compiledModel, EntersText.class);
+
+		CompiledModel otherCompiledModel = Model.builder().build().compile();
+		Transitions transitions = transitionCache.getTransitions(otherCompiledModel, EntersText.class);
+
+		assertSame(otherCompiledModel.getTransitions(EntersText.class), transitions);
+	}
+}
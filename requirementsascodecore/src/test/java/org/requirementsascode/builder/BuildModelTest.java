@@ -2,6 +2,8 @@ package org.requirementsascode.builder;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 import java.util.Collection;
@@ -15,6 +17,7 @@ import org.junit.Test;
 import org.requirementsascode.AbstractActor;
 import org.requirementsascode.AbstractTestCase;
 import org.requirementsascode.Actor;
+import org.requirementsascode.CompiledModel;
 import org.requirementsascode.Flow;
 import org.requirementsascode.FlowStep;
 import org.requirementsascode.Model;
@@ -673,6 +676,40 @@ public class BuildModelTest extends AbstractTestCase {
 		assertFalse(secondUseCaseStep.getPreviousStepInFlow().isPresent());
   }
 
+  @Test
+  public void withFlow_resolvesForwardReferencedFlowPositionWhenBuilding() {
+		Model model = modelBuilder.useCase(USE_CASE)
+			.flow(ALTERNATIVE_FLOW).insteadOf(SYSTEM_DISPLAYS_TEXT)
+				.step(SYSTEM_DISPLAYS_TEXT_AGAIN).system(displaysConstantText())
+			.flow(ALTERNATIVE_FLOW_2)
+				.step(SYSTEM_DISPLAYS_TEXT).system(displaysConstantText())
+			.build();
+	
+		UseCase useCase = model.findUseCase(USE_CASE);
+		FlowStep insteadOfStep = (FlowStep)useCase.findStep(SYSTEM_DISPLAYS_TEXT_AGAIN);
+	
+		assertTrue(model.isFrozen());
+		assertEquals(useCase.findStep(SYSTEM_DISPLAYS_TEXT), insteadOfStep.getFlowPosition().getStep());
+  }
+
+  @Test
+  public void compilesModelAgainOnlyAfterItHasChanged() {
+		UseCasePart useCasePart = modelBuilder.useCase(USE_CASE);
+		useCasePart.basicFlow()
+			.step(SYSTEM_DISPLAYS_TEXT).system(displaysConstantText());
+		Model model = useCasePart.getUseCase().getModel();
+	
+		CompiledModel compiledModel = model.compile();
+		assertSame(compiledModel, model.compile());
+	
+		useCasePart.flow(ALTERNATIVE_FLOW)
+			.step(SYSTEM_DISPLAYS_TEXT_AGAIN).system(displaysConstantText());
+	
+		assertNotSame(compiledModel, model.compile());
+		assertEquals(2, model.compile().getNumberOfSteps());
+		assertFalse(model.isFrozen());
+  }
+
   @Test
   public void withFlow_useCasesAreUniquelyIdentifiedByName() {
 		Model model = 
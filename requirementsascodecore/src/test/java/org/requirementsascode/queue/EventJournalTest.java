@@ -0,0 +1,129 @@
+package org.requirementsascode.queue;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class EventJournalTest {
+	private static final int SEGMENT_SIZE = 1024;
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	private Path directory;
+
+	@Before
+	public void setup() {
+		this.directory = temporaryFolder.getRoot().toPath().resolve("journal");
+	}
+
+	@Test
+	public void replaysUncommittedEventsAfterReopening() throws IOException {
+		try (EventJournal journal = open()) {
+			journal.append("First");
+			journal.append("Second");
+			journal.append("Third");
+			journal.commit(1);
+		}
+
+		try (EventJournal journal = open()) {
+			assertEquals(Arrays.asList("Second", "Third"), uncommittedEventsOf(journal));
+			assertEquals(1, journal.getCommittedSequence());
+			assertEquals(3, journal.append("Fourth"));
+		}
+	}
+
+	@Test
+	public void rollsOverToNewSegmentsAndDeletesCommittedOnes() throws IOException {
+		try (EventJournal journal = open()) {
+			for (int i = 0; i < 100; i++) {
+				journal.append(i);
+			}
+			assertEquals(true, numberOfSegmentFiles() > 2);
+
+			journal.commit(99);
+			assertEquals(1, numberOfSegmentFiles());
+			assertEquals(Arrays.asList(99), uncommittedEventsOf(journal));
+		}
+
+		try (EventJournal journal = open()) {
+			assertEquals(Arrays.asList(99), uncommittedEventsOf(journal));
+		}
+	}
+
+	@Test
+	public void ignoresPartiallyWrittenEventWhenReopening() throws IOException {
+		try (EventJournal journal = open()) {
+			journal.append("First");
+			journal.append("Second");
+		}
+		Path segmentFile = segmentFiles().get(0);
+		try (FileChannel channel = FileChannel.open(segmentFile, StandardOpenOption.WRITE)) {
+			// Corrupt the last byte of the second event
+			JavaEventSerializer serializer = new JavaEventSerializer();
+			long endOfSecondEvent = 12 + 2 * 8 + serializer.serialize("First").length
+				+ serializer.serialize("Second").length;
+			channel.write(ByteBuffer.wrap(new byte[] { 42 }), endOfSecondEvent - 1);
+		}
+
+		try (EventJournal journal = open()) {
+			assertEquals(Arrays.asList("First"), uncommittedEventsOf(journal));
+			journal.append("Third");
+		}
+		try (EventJournal journal = open()) {
+			assertEquals(Arrays.asList("First", "Third"), uncommittedEventsOf(journal));
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void throwsExceptionIfEventDoesNotFitIntoSegment() throws IOException {
+		try (EventJournal journal = open()) {
+			journal.append(new byte[SEGMENT_SIZE]);
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void throwsExceptionIfCommittedSequenceIsBeyondAppendedEvents() throws IOException {
+		try (EventJournal journal = open()) {
+			journal.append("First");
+			journal.commit(2);
+		}
+	}
+
+	private EventJournal open() throws IOException {
+		EventJournal journal = EventJournal.open(directory, new JavaEventSerializer(), SEGMENT_SIZE,
+			SyncPolicy.onEveryAppend());
+		return journal;
+	}
+
+	private List<Object> uncommittedEventsOf(EventJournal journal) {
+		List<Object> events = new ArrayList<>();
+		journal.forEachUncommitted(events::add);
+		return events;
+	}
+
+	private int numberOfSegmentFiles() throws IOException {
+		return segmentFiles().size();
+	}
+
+	private List<Path> segmentFiles() throws IOException {
+		try (Stream<Path> paths = Files.list(directory)) {
+			return paths.filter(path -> path.toString().endsWith(".segment")).sorted().collect(Collectors.toList());
+		}
+	}
+}
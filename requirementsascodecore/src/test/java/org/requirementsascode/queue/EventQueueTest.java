@@ -0,0 +1,217 @@
+package org.requirementsascode.queue;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.requirementsascode.Model;
+import org.requirementsascode.ModelRunner;
+
+public class EventQueueTest {
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	private EventQueue queue;
+
+	@After
+	public void teardown() {
+		if (queue != null) {
+			queue.stop();
+		}
+	}
+
+	@Test
+	public void forwardsEventsOneAtATime() throws InterruptedException {
+		List<Object> consumedEvents = Collections.synchronizedList(new ArrayList<>());
+		CountDownLatch allConsumed = new CountDownLatch(3);
+		queue = new EventQueue(event -> {
+			consumedEvents.add(event);
+			allConsumed.countDown();
+		});
+
+		queue.put("First");
+		queue.put("Second");
+		queue.put("Third");
+
+		assertTrue(allConsumed.await(10, TimeUnit.SECONDS));
+		assertEquals(Arrays.asList("First", "Second", "Third"), consumedEvents);
+	}
+
+	@Test
+	public void forwardsAvailableEventsInBatches() throws InterruptedException {
+		List<List<Object>> consumedBatches = Collections.synchronizedList(new ArrayList<>());
+		CountDownLatch firstBatchTaken = new CountDownLatch(1);
+		CountDownLatch consumerReleased = new CountDownLatch(1);
+		CountDownLatch allConsumed = new CountDownLatch(4);
+		queue = EventQueue.batching(batch -> {
+			consumedBatches.add(new ArrayList<>(batch));
+			firstBatchTaken.countDown();
+			await(consumerReleased);
+			allConsumed.countDown();
+		}, 4);
+
+		queue.put(0);
+		assertTrue(firstBatchTaken.await(10, TimeUnit.SECONDS));
+		for (int i = 1; i <= 10; i++) {
+			queue.put(i);
+		}
+		consumerReleased.countDown();
+
+		assertTrue(allConsumed.await(10, TimeUnit.SECONDS));
+		assertEquals(Arrays.asList(Arrays.asList(0), Arrays.asList(1, 2, 3, 4), Arrays.asList(5, 6, 7, 8),
+			Arrays.asList(9, 10)), consumedBatches);
+	}
+
+	@Test
+	public void feedsBatchesToModelRunner() throws InterruptedException {
+		CountDownLatch allConsumed = new CountDownLatch(100);
+		Model model = Model.builder()
+			.user(String.class).system(text -> allConsumed.countDown())
+			.build();
+		ModelRunner modelRunner = new ModelRunner().startRecording();
+		modelRunner.run(model);
+		queue = EventQueue.batching(modelRunner::reactTo, 16);
+
+		for (int i = 0; i < 100; i++) {
+			queue.put("Event " + i);
+		}
+
+		assertTrue(allConsumed.await(10, TimeUnit.SECONDS));
+		assertEquals(100, modelRunner.getRecordedMessages().length);
+		assertEquals("Event 99", modelRunner.getRecordedMessages()[99]);
+	}
+
+	@Test
+	public void measuresWaitingAndProcessingOfEvents() throws InterruptedException {
+		EventQueueMetrics metrics = new EventQueueMetrics(20, TimeUnit.MILLISECONDS);
+		CountDownLatch firstEventTaken = new CountDownLatch(1);
+		CountDownLatch consumerReleased = new CountDownLatch(1);
+		CountDownLatch allConsumed = new CountDownLatch(4);
+		queue = new EventQueue(event -> {
+			firstEventTaken.countDown();
+			await(consumerReleased);
+			allConsumed.countDown();
+		}).instrumentWith(metrics);
+
+		queue.put("Slow");
+		assertTrue(firstEventTaken.await(10, TimeUnit.SECONDS));
+		queue.put("Second");
+		queue.put("Third");
+		queue.put("Fourth");
+		Thread.sleep(50);
+		consumerReleased.countDown();
+
+		assertTrue(allConsumed.await(10, TimeUnit.SECONDS));
+		assertEquals(4, metrics.getEventsPut());
+		assertEquals(3, metrics.getHighWaterMark());
+		assertEquals(1, metrics.getStalls());
+		assertTrue(metrics.getMaxProcessingNanos() >= TimeUnit.MILLISECONDS.toNanos(50));
+		assertTrue(metrics.getMaxWaitNanos() >= TimeUnit.MILLISECONDS.toNanos(50));
+	}
+
+	@Test
+	public void measuresBatchesAsSingleConsumerCalls() throws InterruptedException {
+		EventQueueMetrics metrics = new EventQueueMetrics(10, TimeUnit.SECONDS);
+		List<List<Object>> consumedBatches = Collections.synchronizedList(new ArrayList<>());
+		CountDownLatch firstBatchTaken = new CountDownLatch(1);
+		CountDownLatch consumerReleased = new CountDownLatch(1);
+		CountDownLatch allConsumed = new CountDownLatch(2);
+		queue = EventQueue.batching(batch -> {
+			consumedBatches.add(new ArrayList<>(batch));
+			firstBatchTaken.countDown();
+			await(consumerReleased);
+			allConsumed.countDown();
+		}, 4).instrumentWith(metrics);
+
+		queue.put(0);
+		assertTrue(firstBatchTaken.await(10, TimeUnit.SECONDS));
+		for (int i = 1; i <= 4; i++) {
+			queue.put(i);
+		}
+		consumerReleased.countDown();
+
+		assertTrue(allConsumed.await(10, TimeUnit.SECONDS));
+		waitUntilConsumed(metrics, 5);
+		assertEquals(Arrays.asList(Arrays.asList(0), Arrays.asList(1, 2, 3, 4)), consumedBatches);
+		assertEquals(5, metrics.getEventsPut());
+		assertEquals(4, metrics.getHighWaterMark());
+		assertEquals(0, metrics.getStalls());
+	}
+
+	@Test
+	public void commitsConsumedEventsInJournal() throws IOException, InterruptedException {
+		CountDownLatch allConsumed = new CountDownLatch(3);
+		try (EventJournal journal = openJournal()) {
+			queue = EventQueue.journaling(event -> allConsumed.countDown(), journal);
+
+			queue.put("First");
+			queue.put("Second");
+			queue.put("Third");
+
+			assertTrue(allConsumed.await(10, TimeUnit.SECONDS));
+			queue.stop();
+			assertEquals(3, journal.getCommittedSequence());
+		}
+	}
+
+	@Test
+	public void replaysEventsOfJournalNotConsumedBefore() throws IOException, InterruptedException {
+		try (EventJournal journal = openJournal()) {
+			journal.append("First");
+			journal.append("Second");
+			journal.commit(1);
+		}
+
+		List<Object> consumedEvents = Collections.synchronizedList(new ArrayList<>());
+		CountDownLatch allConsumed = new CountDownLatch(2);
+		try (EventJournal journal = openJournal()) {
+			queue = EventQueue.journaling(event -> {
+				consumedEvents.add(event);
+				allConsumed.countDown();
+			}, journal);
+			queue.put("Third");
+
+			assertTrue(allConsumed.await(10, TimeUnit.SECONDS));
+			queue.stop();
+			assertEquals(Arrays.asList("Second", "Third"), consumedEvents);
+		}
+	}
+
+		@Test(expected = IllegalArgumentException.class)
+	public void throwsExceptionIfMaximumBatchSizeIsLessThanOne() {
+		EventQueue.batching(batch -> {}, 0);
+	}
+
+	private EventJournal openJournal() throws IOException {
+		EventJournal journal = EventJournal.open(temporaryFolder.getRoot().toPath(), new JavaEventSerializer(), 4096,
+			SyncPolicy.afterEvents(16));
+		return journal;
+	}
+
+		private void waitUntilConsumed(EventQueueMetrics metrics, long numberOfEvents) throws InterruptedException {
+		// The metrics are updated after the consumer has returned
+		for (int i = 0; i < 1_000 && metrics.getEventsConsumed() < numberOfEvents; i++) {
+			Thread.sleep(10);
+		}
+		assertEquals(numberOfEvents, metrics.getEventsConsumed());
+	}
+
+		private void await(CountDownLatch latch) {
+		try {
+			latch.await();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -0,0 +1,114 @@
+package org.requirementsascode.queue;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ExecutorEventQueueTest {
+	private static final int NUMBER_OF_QUEUES = 1_000;
+	private static final int EVENTS_PER_QUEUE = 100;
+
+	private ExecutorService executor;
+
+	@Before
+	public void setup() {
+		this.executor = Executors.newFixedThreadPool(4);
+	}
+
+	@After
+	public void teardown() {
+		executor.shutdownNow();
+	}
+
+	@Test
+	public void forwardsEventsOfManyQueuesOnSharedThreads() throws InterruptedException {
+		CountDownLatch allConsumed = new CountDownLatch(NUMBER_OF_QUEUES * EVENTS_PER_QUEUE);
+		List<ExecutorEventQueue> queues = new ArrayList<>();
+		List<List<Object>> consumedEvents = new ArrayList<>();
+		AtomicBoolean wasCalledConcurrently = new AtomicBoolean();
+		for (int i = 0; i < NUMBER_OF_QUEUES; i++) {
+			List<Object> consumedEventsOfQueue = new ArrayList<>();
+			AtomicBoolean isConsuming = new AtomicBoolean();
+			consumedEvents.add(consumedEventsOfQueue);
+			queues.add(new ExecutorEventQueue(event -> {
+				if (!isConsuming.compareAndSet(false, true)) {
+					wasCalledConcurrently.set(true);
+				}
+				consumedEventsOfQueue.add(event);
+				isConsuming.set(false);
+				allConsumed.countDown();
+			}, executor, 8));
+		}
+
+		Thread[] producers = new Thread[2];
+		for (int p = 0; p < producers.length; p++) {
+			int firstEvent = p * EVENTS_PER_QUEUE / producers.length;
+			producers[p] = new Thread(() -> {
+				for (int event = firstEvent; event < firstEvent + EVENTS_PER_QUEUE / producers.length; event++) {
+					for (ExecutorEventQueue queue : queues) {
+						queue.put(event);
+					}
+				}
+			});
+		}
+		for (Thread producer : producers) {
+			producer.start();
+		}
+		for (Thread producer : producers) {
+			producer.join();
+		}
+
+		assertTrue(allConsumed.await(10, TimeUnit.SECONDS));
+		assertFalse(wasCalledConcurrently.get());
+		for (int i = 0; i < NUMBER_OF_QUEUES; i++) {
+			List<Object> consumedEventsOfQueue = consumedEvents.get(i);
+			assertEquals(EVENTS_PER_QUEUE, consumedEventsOfQueue.size());
+			assertTrue(queues.get(i).isEmpty());
+		}
+	}
+
+	@Test
+	public void forwardsEventsInOrderOnDefaultExecutor() throws InterruptedException {
+		List<Object> consumedEvents = new ArrayList<>();
+		CountDownLatch allConsumed = new CountDownLatch(3);
+		ExecutorEventQueue queue = new ExecutorEventQueue(event -> {
+			consumedEvents.add(event);
+			allConsumed.countDown();
+		});
+
+		queue.put("First");
+		queue.put("Second");
+		queue.put("Third");
+
+		assertTrue(allConsumed.await(10, TimeUnit.SECONDS));
+		assertEquals(Arrays.asList("First", "Second", "Third"), consumedEvents);
+		assertEquals(0, queue.getSize());
+	}
+
+	@Test
+	public void doesNotForwardEventsWhenStopped() throws InterruptedException {
+		List<Object> consumedEvents = new ArrayList<>();
+		ExecutorEventQueue queue = new ExecutorEventQueue(consumedEvents::add, executor);
+
+		queue.stop();
+		queue.put("First");
+		executor.shutdown();
+		executor.awaitTermination(10, TimeUnit.SECONDS);
+
+		assertTrue(consumedEvents.isEmpty());
+		assertEquals(1, queue.getSize());
+	}
+}
@@ -0,0 +1,137 @@
+package org.requirementsascode.queue;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class RingBufferEventQueueTest {
+	private static final int NUMBER_OF_PRODUCERS = 4;
+	private static final int EVENTS_PER_PRODUCER = 1_000;
+
+	private RingBufferEventQueue queue;
+
+	@After
+	public void teardown() {
+		if (queue != null) {
+			queue.stop();
+		}
+	}
+
+	@Test
+	public void deliversEventsOfSeveralProducersWhenBusySpinning() throws InterruptedException {
+		deliversEventsOfSeveralProducers(WaitStrategy.BUSY_SPIN);
+	}
+
+	@Test
+	public void deliversEventsOfSeveralProducersWhenYielding() throws InterruptedException {
+		deliversEventsOfSeveralProducers(WaitStrategy.YIELD);
+	}
+
+	@Test
+	public void deliversEventsOfSeveralProducersWhenParking() throws InterruptedException {
+		deliversEventsOfSeveralProducers(WaitStrategy.PARK);
+	}
+
+	private void deliversEventsOfSeveralProducers(WaitStrategy waitStrategy) throws InterruptedException {
+		int numberOfEvents = NUMBER_OF_PRODUCERS * EVENTS_PER_PRODUCER;
+		List<ProducedEvent> consumedEvents = Collections.synchronizedList(new ArrayList<>());
+		CountDownLatch allConsumed = new CountDownLatch(numberOfEvents);
+		queue = new RingBufferEventQueue(event -> {
+			consumedEvents.add((ProducedEvent) event);
+			allConsumed.countDown();
+		}, 64, waitStrategy);
+
+		List<Thread> producers = new ArrayList<>();
+		for (int producer = 0; producer < NUMBER_OF_PRODUCERS; producer++) {
+			int producerId = producer;
+			Thread producerThread = new Thread(() -> {
+				for (int i = 0; i < EVENTS_PER_PRODUCER; i++) {
+					queue.put(new ProducedEvent(producerId, i));
+				}
+			});
+			producers.add(producerThread);
+			producerThread.start();
+		}
+		for (Thread producerThread : producers) {
+			producerThread.join();
+		}
+
+		assertTrue(allConsumed.await(10, TimeUnit.SECONDS));
+		assertEquals(numberOfEvents, consumedEvents.size());
+		int[] nextNumberOfProducer = new int[NUMBER_OF_PRODUCERS];
+		for (ProducedEvent event : consumedEvents) {
+			assertEquals(nextNumberOfProducer[event.producerId]++, event.number);
+		}
+		assertTrue(queue.isEmpty());
+	}
+
+	@Test
+	public void failsToOfferEventWhenFull() throws InterruptedException {
+		CountDownLatch firstEventTaken = new CountDownLatch(1);
+		CountDownLatch consumerReleased = new CountDownLatch(1);
+		queue = new RingBufferEventQueue(event -> blockConsumer(firstEventTaken, consumerReleased), 2);
+
+		assertTrue(queue.offer("First"));
+		assertTrue(firstEventTaken.await(10, TimeUnit.SECONDS));
+		assertTrue(queue.offer("Second"));
+		assertTrue(queue.offer("Third"));
+
+		assertFalse(queue.offer("Fourth"));
+		assertEquals(2, queue.getSize());
+		consumerReleased.countDown();
+	}
+
+	@Test
+	public void waitsToPutEventUntilThereIsRoom() throws InterruptedException {
+		CountDownLatch firstEventTaken = new CountDownLatch(1);
+		CountDownLatch consumerReleased = new CountDownLatch(1);
+		queue = new RingBufferEventQueue(event -> blockConsumer(firstEventTaken, consumerReleased), 2);
+		queue.put("First");
+		assertTrue(firstEventTaken.await(10, TimeUnit.SECONDS));
+		queue.put("Second");
+		queue.put("Third");
+
+		Thread producerThread = new Thread(() -> queue.put("Fourth"));
+		producerThread.start();
+		producerThread.join(100);
+		assertTrue(producerThread.isAlive());
+
+		consumerReleased.countDown();
+		producerThread.join(10_000);
+		assertFalse(producerThread.isAlive());
+	}
+
+	@Test
+	public void roundsCapacityUpToPowerOfTwo() {
+		queue = new RingBufferEventQueue(event -> {}, 100);
+		assertEquals(128, queue.getCapacity());
+	}
+
+	private void blockConsumer(CountDownLatch firstEventTaken, CountDownLatch consumerReleased) {
+		firstEventTaken.countDown();
+		try {
+			consumerReleased.await();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private static class ProducedEvent {
+		private final int producerId;
+		private final int number;
+
+		ProducedEvent(int producerId, int number) {
+			this.producerId = producerId;
+			this.number = number;
+		}
+	}
+}
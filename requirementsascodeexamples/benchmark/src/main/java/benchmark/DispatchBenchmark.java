@@ -0,0 +1,86 @@
+package benchmark;
+
+import org.requirementsascode.Condition;
+import org.requirementsascode.Model;
+import org.requirementsascode.ModelRunner;
+import org.requirementsascode.builder.StepSystemPart;
+
+/**
+ * Measures how the cost of dispatching a single message grows with the number
+ * of alternative flows in a model.
+ * 
+ * Each alternative flow starts with an interrupting step that handles the same
+ * command as the basic flow step, but whose condition is false. So for every
+ * message, the runner has to check all the interrupting steps before the basic
+ * flow step can react.
+ * 
+ * Run the main method with a warmed up JVM, e.g. from the IDE, and compare the
+ * nanoseconds per message for the different model sizes.
+ * 
+ * @author b_muth
+ */
+public class DispatchBenchmark {
+	private static final int[] NUMBERS_OF_ALTERNATIVE_FLOWS = { 0, 10, 50, 100, 200, 400 };
+	private static final long MEASUREMENT_NANOS = 1_000_000_000L;
+	private static final int BATCH_SIZE = 1_000;
+
+	private final Condition alwaysTrue = () -> true;
+	private final Condition neverTrue = () -> false;
+	private long handledCommands;
+
+	public static void main(String[] args) {
+		DispatchBenchmark benchmark = new DispatchBenchmark();
+		benchmark.run();
+	}
+
+	private void run() {
+		System.out.println("Alternative flows | ns per message");
+		for (int numberOfAlternativeFlows : NUMBERS_OF_ALTERNATIVE_FLOWS) {
+			Model model = buildModel(numberOfAlternativeFlows);
+			ModelRunner modelRunner = new ModelRunner().run(model);
+
+			// Warm up, then measure
+			nanosPerMessage(modelRunner);
+			double nanosPerMessage = nanosPerMessage(modelRunner);
+			System.out.printf("%17d | %14.1f%n", numberOfAlternativeFlows, nanosPerMessage);
+		}
+		System.out.println("Handled commands: " + handledCommands);
+	}
+
+	private Model buildModel(int numberOfAlternativeFlows) {
+		StepSystemPart<Command> stepSystemPart = Model.builder()
+			.useCase("Handle commands")
+				.basicFlow()
+					.step("S1").user(Command.class).system(this::handleCommand).reactWhile(alwaysTrue);
+
+		for (int i = 1; i <= numberOfAlternativeFlows; i++) {
+			stepSystemPart = stepSystemPart
+				.flow("Alternative flow " + i).after("S1").condition(neverTrue)
+					.step("S1a_" + i).user(Command.class).system(this::handleCommand);
+		}
+		return stepSystemPart.build();
+	}
+
+	private double nanosPerMessage(ModelRunner modelRunner) {
+		Command command = new Command();
+		long numberOfMessages = 0;
+		long startTime = System.nanoTime();
+		long elapsedTime;
+		do {
+			for (int i = 0; i < BATCH_SIZE; i++) {
+				modelRunner.reactTo(command);
+			}
+			numberOfMessages += BATCH_SIZE;
+			elapsedTime = System.nanoTime() - startTime;
+		} while (elapsedTime < MEASUREMENT_NANOS);
+
+		return (double) elapsedTime / numberOfMessages;
+	}
+
+	private void handleCommand(Command command) {
+		handledCommands++;
+	}
+
+	private static class Command {
+	}
+}
@@ -0,0 +1,141 @@
+package benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.requirementsascode.Model;
+import org.requirementsascode.ModelRunner;
+import org.requirementsascode.PartitionedModelRunner;
+
+/**
+ * Measures how the throughput of a {@link PartitionedModelRunner} grows with the
+ * number of partitions, compared to a single model runner that several threads
+ * share by synchronizing on it.
+ *
+ * Each message carries the id of an aggregate, and the system reaction does a
+ * fixed amount of CPU work. For each number of threads, the same number of
+ * sender threads send the messages, and the partitioned runner gets the same
+ * number of partitions. On a machine with enough cores, the throughput of the
+ * partitioned runner should grow about linearly with the number of threads,
+ * while the synchronized runner stays at the throughput of a single thread.
+ *
+ * Run the main method with a warmed up JVM, e.g. from the IDE, and compare the
+ * messages per second.
+ *
+ * @author b_muth
+ */
+public class PartitionedRunnerBenchmark {
+	private static final int MESSAGES_PER_RUN = 200_000;
+	private static final int NUMBER_OF_AGGREGATES = 1_024;
+	private static final int WORK_ITERATIONS = 2_000;
+
+	private final LongAdder handledMessages = new LongAdder();
+	private volatile long workResult;
+
+	public static void main(String[] args) throws InterruptedException {
+		PartitionedRunnerBenchmark benchmark = new PartitionedRunnerBenchmark();
+		benchmark.run();
+	}
+
+	private void run() throws InterruptedException {
+		int availableProcessors = Runtime.getRuntime().availableProcessors();
+		Model model = Model.builder()
+			.user(AggregateCommand.class).system(this::handleCommand)
+			.build();
+
+		System.out.println("Threads | synchronized msg/s | partitioned msg/s");
+		for (int numberOfThreads = 1; numberOfThreads <= availableProcessors; numberOfThreads *= 2) {
+			// Warm up, then measure
+			synchronizedMessagesPerSecond(model, numberOfThreads);
+			double synchronizedMessagesPerSecond = synchronizedMessagesPerSecond(model, numberOfThreads);
+			partitionedMessagesPerSecond(model, numberOfThreads);
+			double partitionedMessagesPerSecond = partitionedMessagesPerSecond(model, numberOfThreads);
+
+			System.out.printf("%7d | %18.0f | %17.0f%n", numberOfThreads, synchronizedMessagesPerSecond,
+				partitionedMessagesPerSecond);
+		}
+		System.out.println("Work result: " + workResult);
+	}
+
+	private double synchronizedMessagesPerSecond(Model model, int numberOfThreads) throws InterruptedException {
+		ModelRunner modelRunner = new ModelRunner().run(model);
+		double messagesPerSecond = messagesPerSecond(numberOfThreads, command -> {
+			synchronized (modelRunner) {
+				modelRunner.reactTo(command);
+			}
+		});
+		return messagesPerSecond;
+	}
+
+	private double partitionedMessagesPerSecond(Model model, int numberOfThreads) throws InterruptedException {
+		PartitionedModelRunner partitionedModelRunner = new PartitionedModelRunner(model,
+			command -> ((AggregateCommand) command).aggregateId, ModelRunner::new, numberOfThreads, 1024);
+		try {
+			double messagesPerSecond = messagesPerSecond(numberOfThreads, partitionedModelRunner::tellAsync);
+			return messagesPerSecond;
+		} finally {
+			partitionedModelRunner.stop();
+		}
+	}
+
+	/**
+	 * Sends the messages of a run from the specified number of threads, and waits
+	 * until all of them have been handled.
+	 */
+	private double messagesPerSecond(int numberOfThreads, CommandSender commandSender) throws InterruptedException {
+		handledMessages.reset();
+		int messagesPerThread = MESSAGES_PER_RUN / numberOfThreads;
+		long expectedMessages = (long) messagesPerThread * numberOfThreads;
+
+		List<Thread> senderThreads = new ArrayList<>();
+		for (int thread = 0; thread < numberOfThreads; thread++) {
+			final int firstAggregateId = thread;
+			senderThreads.add(new Thread(() -> {
+				for (int i = 0; i < messagesPerThread; i++) {
+					int aggregateId = (firstAggregateId + i * numberOfThreads) % NUMBER_OF_AGGREGATES;
+					commandSender.send(new AggregateCommand(aggregateId));
+				}
+			}));
+		}
+
+		long startTime = System.nanoTime();
+		for (Thread senderThread : senderThreads) {
+			senderThread.start();
+		}
+		for (Thread senderThread : senderThreads) {
+			senderThread.join();
+		}
+		while (handledMessages.sum() < expectedMessages) {
+			Thread.yield();
+		}
+		long elapsedTime = System.nanoTime() - startTime;
+
+		return expectedMessages * 1_000_000_000.0 / elapsedTime;
+	}
+
+	private void handleCommand(AggregateCommand command) {
+		long x = command.aggregateId + 1;
+		for (int i = 0; i < WORK_ITERATIONS; i++) {
+			x ^= x << 13;
+			x ^= x >>> 7;
+			x ^= x << 17;
+		}
+		if (x == 0) {
+			workResult = x;
+		}
+		handledMessages.increment();
+	}
+
+	private interface CommandSender {
+		void send(AggregateCommand command);
+	}
+
+	private static class AggregateCommand {
+		private final Integer aggregateId;
+
+		private AggregateCommand(int aggregateId) {
+			this.aggregateId = aggregateId;
+		}
+	}
+}
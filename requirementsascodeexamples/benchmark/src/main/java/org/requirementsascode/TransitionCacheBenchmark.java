@@ -0,0 +1,107 @@
+package org.requirementsascode;
+
+import org.requirementsascode.builder.FlowlessSystemPart;
+
+/**
+ * Measures how long a runner takes to find the transition table of a message
+ * class, with and without the runner's {@link TransitionCache} in front of the
+ * compiled model's map.
+ *
+ * The messages cycle through a number of different message classes, all of
+ * which the model handles. In the first case, the class changes with every
+ * message, so every lookup misses the cache, and the cache adds its overhead
+ * to the map lookup. In the second case, the messages come in runs of the same
+ * class, so most lookups hit the cache.
+ *
+ * The benchmark is in the same package as the cache, because the cache and
+ * the compiled model aren't public.
+ *
+ * Run the main method with a warmed up JVM, e.g. from the IDE, and compare the
+ * nanoseconds per lookup.
+ *
+ * @author b_muth
+ */
+public class TransitionCacheBenchmark {
+	private static final int[] NUMBERS_OF_MESSAGE_CLASSES = { 1, 2, 4, 8, 16 };
+	private static final Class<?>[] MESSAGE_CLASSES = { String.class, Integer.class, Long.class, Short.class,
+		Byte.class, Double.class, Float.class, Character.class, Boolean.class, Object.class, StringBuilder.class,
+		StringBuffer.class, Thread.class, Number.class, Enum.class, Void.class };
+	private static final long MEASUREMENT_NANOS = 1_000_000_000L;
+	private static final int BATCH_SIZE = 1_024;
+	private static final int RUN_LENGTH = 64;
+
+	private long numberOfTransitions;
+
+	public static void main(String[] args) {
+		TransitionCacheBenchmark benchmark = new TransitionCacheBenchmark();
+		benchmark.run();
+	}
+
+	private void run() {
+		System.out.println("Run length | Message classes | map ns per lookup | cache ns per lookup");
+		for (int runLength : new int[] { 1, RUN_LENGTH }) {
+			for (int numberOfMessageClasses : NUMBERS_OF_MESSAGE_CLASSES) {
+				CompiledModel compiledModel = buildModel(numberOfMessageClasses).compile();
+				Class<?>[] messageClasses = messageClassesOfBatch(numberOfMessageClasses, runLength);
+				TransitionCache transitionCache = new TransitionCache();
+
+				// Warm up, then measure
+				nanosPerMapLookup(compiledModel, messageClasses);
+				double nanosPerMapLookup = nanosPerMapLookup(compiledModel, messageClasses);
+				nanosPerCacheLookup(transitionCache, compiledModel, messageClasses);
+				double nanosPerCacheLookup = nanosPerCacheLookup(transitionCache, compiledModel, messageClasses);
+
+				System.out.printf("%10d | %15d | %17.1f | %19.1f%n", runLength, numberOfMessageClasses,
+					nanosPerMapLookup, nanosPerCacheLookup);
+			}
+		}
+		System.out.println("Number of transitions: " + numberOfTransitions);
+	}
+
+	private Model buildModel(int numberOfMessageClasses) {
+		FlowlessSystemPart<?> systemPart = Model.builder().user(MESSAGE_CLASSES[0]).system(message -> {});
+		for (int i = 1; i < numberOfMessageClasses; i++) {
+			systemPart = systemPart.user(MESSAGE_CLASSES[i]).system(message -> {});
+		}
+		return systemPart.build();
+	}
+
+	private Class<?>[] messageClassesOfBatch(int numberOfMessageClasses, int runLength) {
+		Class<?>[] messageClasses = new Class<?>[BATCH_SIZE];
+		for (int i = 0; i < BATCH_SIZE; i++) {
+			messageClasses[i] = MESSAGE_CLASSES[(i / runLength) % numberOfMessageClasses];
+		}
+		return messageClasses;
+	}
+
+	private double nanosPerMapLookup(CompiledModel compiledModel, Class<?>[] messageClasses) {
+		long numberOfLookups = 0;
+		long startTime = System.nanoTime();
+		long elapsedTime;
+		do {
+			for (Class<?> messageClass : messageClasses) {
+				numberOfTransitions += compiledModel.getTransitions(messageClass).getNumberOfColumns();
+			}
+			numberOfLookups += messageClasses.length;
+			elapsedTime = System.nanoTime() - startTime;
+		} while (elapsedTime < MEASUREMENT_NANOS);
+
+		return (double) elapsedTime / numberOfLookups;
+	}
+
+	private double nanosPerCacheLookup(TransitionCache transitionCache, CompiledModel compiledModel,
+		Class<?>[] messageClasses) {
+		long numberOfLookups = 0;
+		long startTime = System.nanoTime();
+		long elapsedTime;
+		do {
+			for (Class<?> messageClass : messageClasses) {
+				numberOfTransitions += transitionCache.getTransitions(compiledModel, messageClass).getNumberOfColumns();
+			}
+			numberOfLookups += messageClasses.length;
+			elapsedTime = System.nanoTime() - startTime;
+		} while (elapsedTime < MEASUREMENT_NANOS);
+
+		return (double) elapsedTime / numberOfLookups;
+	}
+}
@@ -0,0 +1,275 @@
+package org.requirementsascode.flow;
+
+import java.util.ArrayDeque;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.requirementsascode.ModelRunner;
+
+/**
+ * Adapts a model runner to a {@link Flow.Processor}. The model runner reacts to
+ * each message from upstream, see {@link ModelRunner#reactTo(Object)}, and the
+ * processor emits the events the model runner publishes to its single
+ * downstream subscriber.
+ *
+ * <p>
+ * The processor requests messages from upstream only as long as the subscriber
+ * has requested more events than are buffered. So the buffer only holds the
+ * events of the messages requested, and a slow subscriber slows down upstream.
+ *
+ * <p>
+ * The processor publishes the events with
+ * {@link ModelRunner#publishWith(java.util.function.Consumer)}, so the model
+ * runner doesn't react to the events it publishes itself anymore. Run the model
+ * runner before the first message arrives. If the model runner throws an
+ * exception, the processor cancels upstream, and passes the exception to the
+ * subscriber.
+ *
+ * @author b_muth
+ *
+ */
+public class ModelRunnerProcessor implements Flow.Processor<Object, Object> {
+	private final ModelRunner modelRunner;
+	private final Queue<Object> events;
+	private final AtomicInteger drainRequests;
+	private Flow.Subscription upstream;
+	private Flow.Subscriber<? super Object> downstream;
+	private long demand;
+	private long upstreamRequested;
+	private boolean isUpstreamDone;
+	private boolean isCancelled;
+	private boolean isTerminated;
+	private Throwable error;
+
+	/**
+	 * Creates a processor for the specified model runner.
+	 *
+	 * @param modelRunner the model runner that reacts to the messages
+	 */
+	public ModelRunnerProcessor(ModelRunner modelRunner) {
+		this.modelRunner = Objects.requireNonNull(modelRunner);
+		this.events = new ArrayDeque<>();
+		this.drainRequests = new AtomicInteger();
+		modelRunner.publishWith(this::bufferEvent);
+	}
+
+	@Override
+	public void subscribe(Flow.Subscriber<? super Object> subscriber) {
+		Objects.requireNonNull(subscriber);
+
+		boolean isFirstSubscriber;
+		synchronized (this) {
+			isFirstSubscriber = downstream == null;
+			if (isFirstSubscriber) {
+				downstream = subscriber;
+			}
+		}
+		if (isFirstSubscriber) {
+			subscriber.onSubscribe(new DownstreamSubscription());
+			drain();
+		} else {
+			subscriber.onSubscribe(new RejectedSubscription());
+			subscriber.onError(new IllegalStateException("Processor supports only a single subscriber"));
+		}
+	}
+
+	@Override
+	public void onSubscribe(Flow.Subscription subscription) {
+		Objects.requireNonNull(subscription);
+		boolean isFirstSubscription;
+		synchronized (this) {
+			isFirstSubscription = upstream == null && !isCancelled;
+			if (isFirstSubscription) {
+				upstream = subscription;
+			}
+		}
+		if (isFirstSubscription) {
+			drain();
+		} else {
+			subscription.cancel();
+		}
+	}
+
+	@Override
+	public void onNext(Object message) {
+		Objects.requireNonNull(message);
+		synchronized (this) {
+			if (isUpstreamDone || isCancelled) {
+				return;
+			}
+			if (upstreamRequested != Long.MAX_VALUE) {
+				upstreamRequested--;
+			}
+		}
+		try {
+			modelRunner.reactTo(message);
+		} catch (RuntimeException e) {
+			cancelUpstream();
+			onError(e);
+			return;
+		}
+		drain();
+	}
+
+	private void bufferEvent(Object event) {
+		synchronized (this) {
+			events.add(event);
+		}
+	}
+
+	@Override
+	public void onError(Throwable throwable) {
+		Objects.requireNonNull(throwable);
+		synchronized (this) {
+			if (isUpstreamDone) {
+				return;
+			}
+			isUpstreamDone = true;
+			error = throwable;
+		}
+		drain();
+	}
+
+	@Override
+	public void onComplete() {
+		synchronized (this) {
+			isUpstreamDone = true;
+		}
+		drain();
+	}
+
+	/**
+	 * Emits the buffered events the subscriber has requested, signals the end of
+	 * the stream, and requests more messages from upstream. Only one thread at a
+	 * time drains. If another thread asks for a drain meanwhile, that thread
+	 * returns, and the draining thread drains again.
+	 */
+	private void drain() {
+		if (drainRequests.getAndIncrement() != 0) {
+			return;
+		}
+		int missedDrainRequests = 1;
+		do {
+			Flow.Subscriber<? super Object> subscriber;
+			synchronized (this) {
+				subscriber = downstream;
+			}
+			if (subscriber != null) {
+				emitRequestedEvents(subscriber);
+				if (!signalEndOfStream(subscriber)) {
+					requestMessagesFromUpstream();
+				}
+			}
+			missedDrainRequests = drainRequests.addAndGet(-missedDrainRequests);
+		} while (missedDrainRequests != 0);
+	}
+
+	private void emitRequestedEvents(Flow.Subscriber<? super Object> subscriber) {
+		while (true) {
+			Object event;
+			synchronized (this) {
+				if (isCancelled || isTerminated || error != null || demand == 0 || events.isEmpty()) {
+					return;
+				}
+				event = events.poll();
+				if (demand != Long.MAX_VALUE) {
+					demand--;
+				}
+			}
+			subscriber.onNext(event);
+		}
+	}
+
+	private boolean signalEndOfStream(Flow.Subscriber<? super Object> subscriber) {
+		Throwable endingError;
+		synchronized (this) {
+			if (isCancelled || isTerminated) {
+				return true;
+			}
+			if (!isUpstreamDone || (error == null && !events.isEmpty())) {
+				return false;
+			}
+			isTerminated = true;
+			endingError = error;
+			events.clear();
+		}
+		if (endingError == null) {
+			subscriber.onComplete();
+		} else {
+			subscriber.onError(endingError);
+		}
+		return true;
+	}
+
+	private void requestMessagesFromUpstream() {
+		Flow.Subscription subscription;
+		long numberOfMessages;
+		synchronized (this) {
+			subscription = upstream;
+			if (subscription == null || isUpstreamDone || upstreamRequested == Long.MAX_VALUE) {
+				return;
+			}
+			if (demand == Long.MAX_VALUE) {
+				numberOfMessages = Long.MAX_VALUE;
+			} else {
+				numberOfMessages = demand - events.size() - upstreamRequested;
+			}
+			if (numberOfMessages <= 0) {
+				return;
+			}
+			upstreamRequested = addWithoutOverflow(upstreamRequested, numberOfMessages);
+		}
+		subscription.request(numberOfMessages);
+	}
+
+	private void cancelUpstream() {
+		Flow.Subscription subscription;
+		synchronized (this) {
+			subscription = upstream;
+		}
+		if (subscription != null) {
+			subscription.cancel();
+		}
+	}
+
+	private static long addWithoutOverflow(long a, long b) {
+		long sum = a + b;
+		return sum < 0 ? Long.MAX_VALUE : sum;
+	}
+
+	private class DownstreamSubscription implements Flow.Subscription {
+		@Override
+		public void request(long n) {
+			if (n <= 0) {
+				cancelUpstream();
+				onError(new IllegalArgumentException("Number of requested events must be positive, but was " + n));
+				return;
+			}
+			synchronized (ModelRunnerProcessor.this) {
+				demand = addWithoutOverflow(demand, n);
+			}
+			drain();
+		}
+
+		@Override
+		public void cancel() {
+			synchronized (ModelRunnerProcessor.this) {
+				isCancelled = true;
+				events.clear();
+			}
+			cancelUpstream();
+		}
+	}
+
+	private static class RejectedSubscription implements Flow.Subscription {
+		@Override
+		public void request(long n) {
+		}
+
+		@Override
+		public void cancel() {
+		}
+	}
+}
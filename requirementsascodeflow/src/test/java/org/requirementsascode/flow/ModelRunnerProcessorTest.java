@@ -0,0 +1,183 @@
+package org.requirementsascode.flow;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.requirementsascode.Model;
+import org.requirementsascode.ModelRunner;
+
+public class ModelRunnerProcessorTest {
+	private ModelRunnerProcessor processor;
+	private TestPublisher upstream;
+	private TestSubscriber downstream;
+
+	@Before
+	public void setup() {
+		Model model = Model.builder()
+			.user(String.class).systemPublish(String::length)
+			.user(Integer.class).system(number -> {
+				throw new IllegalStateException("Can't handle " + number);
+			})
+			.build();
+		ModelRunner modelRunner = new ModelRunner();
+		modelRunner.run(model);
+
+		this.processor = new ModelRunnerProcessor(modelRunner);
+		this.upstream = new TestPublisher();
+		this.downstream = new TestSubscriber();
+		upstream.subscribe(processor);
+		processor.subscribe(downstream);
+	}
+
+	@Test
+	public void requestsOnlyAsManyMessagesAsEventsHaveBeenRequested() {
+		assertEquals(0, upstream.requested);
+
+		downstream.subscription.request(2);
+		assertEquals(2, upstream.requested);
+
+		upstream.subscriber.onNext("One");
+		upstream.subscriber.onNext("Three");
+		assertEquals(Arrays.asList(3, 5), downstream.events);
+		assertEquals(2, upstream.requested);
+
+		downstream.subscription.request(1);
+		assertEquals(3, upstream.requested);
+	}
+
+	@Test
+	public void completesAfterAllEventsHaveBeenEmitted() {
+		downstream.subscription.request(1);
+		upstream.subscriber.onNext("One");
+		upstream.subscriber.onComplete();
+
+		assertEquals(Arrays.asList(3), downstream.events);
+		assertTrue(downstream.isCompleted);
+	}
+
+	@Test
+	public void passesExceptionOfModelRunnerDownstreamAndCancelsUpstream() {
+		downstream.subscription.request(2);
+		upstream.subscriber.onNext(42);
+		upstream.subscriber.onNext("One");
+
+		assertEquals(IllegalStateException.class, downstream.error.getClass());
+		assertTrue(upstream.isCancelled);
+		assertEquals(Collections.emptyList(), downstream.events);
+	}
+
+	@Test
+	public void rejectsSecondSubscriber() {
+		TestSubscriber secondDownstream = new TestSubscriber();
+		processor.subscribe(secondDownstream);
+
+		assertEquals(IllegalStateException.class, secondDownstream.error.getClass());
+	}
+
+	@Test
+	public void processesMessagesOfSubmissionPublisher() throws InterruptedException {
+		Model model = Model.builder()
+			.user(String.class).systemPublish(String::length)
+			.build();
+		ModelRunner modelRunner = new ModelRunner();
+		modelRunner.run(model);
+		ModelRunnerProcessor processor = new ModelRunnerProcessor(modelRunner);
+
+		List<Object> events = Collections.synchronizedList(new ArrayList<>());
+		CountDownLatch completed = new CountDownLatch(1);
+		try (SubmissionPublisher<Object> publisher = new SubmissionPublisher<>()) {
+			publisher.subscribe(processor);
+			processor.subscribe(new Flow.Subscriber<Object>() {
+				private Flow.Subscription subscription;
+
+				@Override
+				public void onSubscribe(Flow.Subscription subscription) {
+					this.subscription = subscription;
+					subscription.request(1);
+				}
+
+				@Override
+				public void onNext(Object event) {
+					events.add(event);
+					subscription.request(1);
+				}
+
+				@Override
+				public void onError(Throwable throwable) {
+				}
+
+				@Override
+				public void onComplete() {
+					completed.countDown();
+				}
+			});
+
+			for (int i = 0; i < 1_000; i++) {
+				publisher.submit("Message");
+			}
+		}
+
+		assertTrue(completed.await(10, TimeUnit.SECONDS));
+		assertEquals(1_000, events.size());
+	}
+
+	private static class TestPublisher implements Flow.Publisher<Object> {
+		private Flow.Subscriber<? super Object> subscriber;
+		private long requested;
+		private boolean isCancelled;
+
+		@Override
+		public void subscribe(Flow.Subscriber<? super Object> subscriber) {
+			this.subscriber = subscriber;
+			subscriber.onSubscribe(new Flow.Subscription() {
+				@Override
+				public void request(long n) {
+					requested += n;
+				}
+
+				@Override
+				public void cancel() {
+					isCancelled = true;
+				}
+			});
+		}
+	}
+
+	private static class TestSubscriber implements Flow.Subscriber<Object> {
+		private Flow.Subscription subscription;
+		private final List<Object> events = new ArrayList<>();
+		private Throwable error;
+		private boolean isCompleted;
+
+		@Override
+		public void onSubscribe(Flow.Subscription subscription) {
+			this.subscription = subscription;
+		}
+
+		@Override
+		public void onNext(Object event) {
+			events.add(event);
+		}
+
+		@Override
+		public void onError(Throwable throwable) {
+			this.error = throwable;
+		}
+
+		@Override
+		public void onComplete() {
+			this.isCompleted = true;
+		}
+	}
+}